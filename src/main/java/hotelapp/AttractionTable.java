@@ -0,0 +1,85 @@
+package hotelapp;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of all attractions, keyed by their Places id. Each attraction is stored once, however many hotels it
+ * is near, and hotels refer to it by its handle: the int position of the attraction in the table.
+ * Attractions are only ever added, so a handle stays valid and the table can be shared by a HotelData and
+ * all its snapshots. Adding is safe from several threads at once: the id map is a ConcurrentHashMap, and
+ * the attractions are stored in fixed-size chunks, so adding never moves an attraction that was stored
+ * before.
+ */
+class AttractionTable {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private final ConcurrentHashMap<String, Integer> handles;
+    private final AtomicInteger size;
+    // replaced, never changed in place, when more chunks are needed
+    private volatile TouristAttraction[][] chunks;
+
+    /**
+     * Constructor for an empty AttractionTable
+     */
+    AttractionTable() {
+        handles = new ConcurrentHashMap<>();
+        size = new AtomicInteger();
+        chunks = new TouristAttraction[16][];
+    }
+
+    /**
+     * Returns the handle of an attraction, adding the attraction if its id is not in the table yet.
+     * An attraction that is already in the table keeps the name, rating, address and location it was
+     * added with.
+     *
+     * @param id      attraction id
+     * @param name    attraction name
+     * @param rating  rating of attraction
+     * @param address address of attraction
+     * @param lat     latitude of attraction, NaN if unknown
+     * @param lng     longitude of attraction, NaN if unknown
+     * @return handle of the attraction
+     */
+    int add(String id, String name, double rating, String address, double lat, double lng) {
+        Integer handle = handles.get(id);
+        if (handle != null) {
+            return handle;
+        }
+        // the attraction is stored before its handle is published, so whoever gets the handle finds it
+        return handles.computeIfAbsent(id, k -> {
+            int h = size.getAndIncrement();
+            chunk(h >>> CHUNK_BITS)[h & (CHUNK_SIZE - 1)] = new TouristAttraction(id, name, rating, address, lat, lng);
+            return h;
+        });
+    }
+
+    /**
+     * Returns the attraction of a handle
+     *
+     * @param handle handle returned by add()
+     * @return attraction
+     */
+    TouristAttraction get(int handle) {
+        return chunks[handle >>> CHUNK_BITS][handle & (CHUNK_SIZE - 1)];
+    }
+
+    private TouristAttraction[] chunk(int index) {
+        TouristAttraction[][] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, index + 1));
+            }
+            if (current[index] == null) {
+                current[index] = new TouristAttraction[CHUNK_SIZE];
+            }
+            chunks = current;
+            return current[index];
+        }
+    }
+}
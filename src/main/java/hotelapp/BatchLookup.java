@@ -0,0 +1,162 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch of hotel, attraction and description lookups by hotel id. HotelData.lookup() resolves all lookups
+ * of a batch against one consistent view of the data and passes the results to a Sink in batch order,
+ * so a caller needing many hotels pays for taking the lock or snapshot once instead of once per id.
+ */
+class BatchLookup {
+    /**
+     * What a lookup returns for its hotel
+     */
+    enum Kind {
+        HOTEL, ATTRACTIONS, DESCRIPTIONS
+    }
+
+    /**
+     * Receives the results of a batch, one call per lookup in batch order. No lock is held during the
+     * calls, so a sink may write its results to a slow client: ThreadSafeHotelData reads them from an
+     * immutable snapshot, or collects them in Results under its read lock and passes them on after
+     * releasing it.
+     */
+    interface Sink {
+        /**
+         * @param hotelId id of the hotel
+         * @param hotel   hotel, or null if there is no hotel with the id
+         * @throws IOException if the result can not be written
+         */
+        void hotel(int hotelId, Hotel hotel) throws IOException;
+
+        /**
+         * @param hotelId     id of the hotel
+         * @param hotel       hotel, or null if there is no hotel with the id
+         * @param attractions attractions of the hotel, best rated first; empty if there are none
+         * @throws IOException if the result can not be written
+         */
+        void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions) throws IOException;
+
+        /**
+         * @param hotelId  id of the hotel
+         * @param hotel    hotel, or null if there is no hotel with the id
+         * @param property property description, or null if there is none
+         * @param area     area description, or null if there is none
+         * @throws IOException if the result can not be written
+         */
+        void descriptions(int hotelId, Hotel hotel, String property, String area) throws IOException;
+    }
+
+    /**
+     * Sink that keeps the results of a batch, so they can be passed on once the view of the data they were
+     * read from has been released. The results are the objects the data returned, which are not changed
+     * by later writes.
+     */
+    static class Results implements Sink {
+        private final BatchLookup batch;
+        private final Hotel[] hotels;
+        // attractions of an ATTRACTIONS lookup, property description of a DESCRIPTIONS lookup
+        private final Object[] values;
+        private final String[] areas;
+        private int size;
+
+        /**
+         * Constructor for Results
+         *
+         * @param batch batch whose results are kept
+         */
+        Results(BatchLookup batch) {
+            this.batch = batch;
+            hotels = new Hotel[batch.size()];
+            values = new Object[batch.size()];
+            areas = new String[batch.size()];
+        }
+
+        @Override
+        public void hotel(int hotelId, Hotel hotel) {
+            hotels[size++] = hotel;
+        }
+
+        @Override
+        public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions) {
+            hotels[size] = hotel;
+            values[size++] = attractions;
+        }
+
+        @Override
+        public void descriptions(int hotelId, Hotel hotel, String property, String area) {
+            hotels[size] = hotel;
+            values[size] = property;
+            areas[size++] = area;
+        }
+
+        /**
+         * Passes the kept results to a sink, in batch order
+         *
+         * @param sink receiver of the results
+         * @throws IOException if the sink can not write a result
+         */
+        @SuppressWarnings("unchecked")
+        void replay(Sink sink) throws IOException {
+            for (int i = 0; i < size; i++) {
+                int hotelId = batch.getHotelId(i);
+                switch (batch.getKind(i)) {
+                    case HOTEL:
+                        sink.hotel(hotelId, hotels[i]);
+                        break;
+                    case ATTRACTIONS:
+                        sink.attractions(hotelId, hotels[i], (List<TouristAttraction>) values[i]);
+                        break;
+                    case DESCRIPTIONS:
+                        sink.descriptions(hotelId, hotels[i], (String) values[i], areas[i]);
+                        break;
+                }
+            }
+        }
+    }
+
+    private Kind[] kinds = new Kind[16];
+    private int[] hotelIds = new int[16];
+    private int size;
+
+    /**
+     * Adds a lookup to the batch
+     *
+     * @param kind    what to look up
+     * @param hotelId id of the hotel
+     */
+    void add(Kind kind, int hotelId) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            hotelIds = Arrays.copyOf(hotelIds, size * 2);
+        }
+        kinds[size] = kind;
+        hotelIds[size] = hotelId;
+        size++;
+    }
+
+    /**
+     * @return number of lookups in the batch
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of the lookup
+     * @return what the lookup looks up
+     */
+    Kind getKind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * @param i index of the lookup
+     * @return hotel id of the lookup
+     */
+    int getHotelId(int i) {
+        return hotelIds[i];
+    }
+}
@@ -0,0 +1,298 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted index over the hotel descriptions, ranking hotels for multi-term queries with BM25.
+ * Every indexed description gets the next internal document number, and the postings list of a term holds
+ * the documents containing it in increasing order, as variable-length deltas of the document number
+ * followed by the term frequency. Indexing the descriptions of a hotel again adds a new document and
+ * marks the old one dead; dead documents are skipped when scoring but still count in document frequencies.
+ * Postings and document columns are append-only, so a copy shares them and only copies what it needs to
+ * stay unaffected by later adds.
+ */
+class DescriptionIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // score accumulators of each searching thread, reset after every search
+    private static final ThreadLocal<float[]> SCORES = ThreadLocal.withInitial(() -> new float[0]);
+    private final Map<String, Postings> postings;
+    // hotel id of every document
+    private int[] docHotelIds;
+    // number of terms of every document
+    private int[] docLengths;
+    private long[] deadDocs;
+    private int docCount;
+    private int liveDocCount;
+    private long liveLength;
+    // hotel id -> document number of its current document
+    private final IntMap<Integer> hotelDocs;
+
+    /**
+     * Constructor for an empty DescriptionIndex
+     */
+    DescriptionIndex() {
+        postings = new HashMap<>();
+        docHotelIds = new int[16];
+        docLengths = new int[16];
+        deadDocs = new long[1];
+        hotelDocs = new IntMap<>();
+    }
+
+    /**
+     * Copy constructor; the copy is not affected by later adds on other
+     *
+     * @param other index to copy
+     */
+    DescriptionIndex(DescriptionIndex other) {
+        postings = new HashMap<>(other.postings.size() * 2);
+        for (Map.Entry<String, Postings> entry : other.postings.entrySet()) {
+            postings.put(entry.getKey(), new Postings(entry.getValue()));
+        }
+        docHotelIds = other.docHotelIds;
+        docLengths = other.docLengths;
+        deadDocs = other.deadDocs.clone();
+        docCount = other.docCount;
+        liveDocCount = other.liveDocCount;
+        liveLength = other.liveLength;
+        hotelDocs = new IntMap<>(other.hotelDocs);
+    }
+
+    /**
+     * Indexes the descriptions of a hotel, replacing the descriptions indexed before for it
+     *
+     * @param hotelId hotel id
+     * @param text    text of the descriptions
+     */
+    void add(int hotelId, String text) {
+        Integer previous = hotelDocs.get(hotelId);
+        if (previous != null) {
+            deadDocs[previous >>> 6] |= 1L << previous;
+            liveDocCount--;
+            liveLength -= docLengths[previous];
+        }
+        Map<String, Integer> termFrequencies = new LinkedHashMap<>();
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            termFrequencies.merge(term, 1, Integer::sum);
+        }
+        int doc = docCount++;
+        if (doc == docHotelIds.length) {
+            docHotelIds = Arrays.copyOf(docHotelIds, doc * 2);
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        if ((doc >>> 6) == deadDocs.length) {
+            deadDocs = Arrays.copyOf(deadDocs, deadDocs.length * 2);
+        }
+        docHotelIds[doc] = hotelId;
+        docLengths[doc] = terms.size();
+        liveDocCount++;
+        liveLength += terms.size();
+        hotelDocs.put(hotelId, doc);
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new Postings()).add(doc, entry.getValue());
+        }
+    }
+
+    /**
+     * Finds the hotels whose descriptions match a query best
+     *
+     * @param query query terms
+     * @param k     maximum number of hotels to return
+     * @return ids of the matching hotels, best match first
+     */
+    List<Integer> search(String query, int k) {
+        List<Integer> result = new ArrayList<>();
+        if (k <= 0 || liveDocCount == 0) {
+            return result;
+        }
+        double averageLength = Math.max(1, (double) liveLength / liveDocCount);
+        float[] scores = SCORES.get();
+        if (scores.length < docCount) {
+            scores = new float[Math.max(docCount, scores.length * 2)];
+            SCORES.set(scores);
+        }
+        int[] matched = new int[16];
+        int matchedCount = 0;
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            // the document frequency may include dead documents
+            int docFrequency = Math.min(termPostings.docFrequency, liveDocCount);
+            double idf = Math.log(1 + (liveDocCount - docFrequency + 0.5) / (docFrequency + 0.5));
+            int doc = 0;
+            int position = 0;
+            while (position < termPostings.size) {
+                int delta = 0;
+                int frequency = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = termPostings.data[position++];
+                    delta |= (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                for (int shift = 0; ; shift += 7) {
+                    byte b = termPostings.data[position++];
+                    frequency |= (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                doc += delta;
+                if ((deadDocs[doc >>> 6] & (1L << doc)) != 0) {
+                    continue;
+                }
+                if (scores[doc] == 0) {
+                    if (matchedCount == matched.length) {
+                        matched = Arrays.copyOf(matched, matchedCount * 2);
+                    }
+                    matched[matchedCount++] = doc;
+                }
+                double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                scores[doc] += (float) (idf * frequency * (K1 + 1) / (frequency + norm));
+            }
+        }
+        // min-heap of the k best documents so far, so a document only enters if it beats the worst of them
+        int[] heap = new int[Math.min(k, matchedCount)];
+        int heapSize = 0;
+        for (int i = 0; i < matchedCount; i++) {
+            int doc = matched[i];
+            if (heapSize < heap.length) {
+                heap[heapSize++] = doc;
+                siftUp(heap, heapSize - 1, scores);
+            } else if (better(doc, heap[0], scores)) {
+                heap[0] = doc;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+        Integer[] ranked = new Integer[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ranked[i] = docHotelIds[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        for (int i = 0; i < matchedCount; i++) {
+            scores[matched[i]] = 0;
+        }
+        Collections.addAll(result, ranked);
+        return result;
+    }
+
+    /**
+     * Orders documents by score, and documents with equal scores by hotel id, lowest first
+     */
+    private boolean better(int doc, int other, float[] scores) {
+        if (scores[doc] != scores[other]) {
+            return scores[doc] > scores[other];
+        }
+        return docHotelIds[doc] < docHotelIds[other];
+    }
+
+    private void siftUp(int[] heap, int i, float[] scores) {
+        while (i > 0 && better(heap[(i - 1) / 2], heap[i], scores)) {
+            int parent = (i - 1) / 2;
+            int doc = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = doc;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && better(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!better(heap[i], heap[child], scores)) {
+                break;
+            }
+            int doc = heap[i];
+            heap[i] = heap[child];
+            heap[child] = doc;
+            i = child;
+        }
+    }
+
+    /**
+     * Splits text into lower case terms made of letters and digits
+     *
+     * @param text text
+     * @return terms in the order they appear
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Postings list of a term
+     */
+    private static class Postings {
+        private byte[] data;
+        private int size;
+        private int lastDoc;
+        private int docFrequency;
+
+        Postings() {
+            data = new byte[8];
+        }
+
+        Postings(Postings other) {
+            data = other.data;
+            size = other.size;
+            lastDoc = other.lastDoc;
+            docFrequency = other.docFrequency;
+        }
+
+        /**
+         * Appends a document; documents are added in increasing order
+         *
+         * @param doc       document number
+         * @param frequency number of times the term occurs in the document
+         */
+        void add(int doc, int frequency) {
+            if (size + 10 > data.length) {
+                // copies sharing the old array keep it
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 10));
+            }
+            writeVarInt(doc - lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            docFrequency++;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7f) != 0) {
+                data[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
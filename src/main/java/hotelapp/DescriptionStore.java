@@ -0,0 +1,180 @@
+package hotelapp;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact store of the property and area descriptions of the hotels. The text of every section is kept as
+ * UTF-8 bytes (optionally deflate compressed) in a shared arena of large byte blocks, and each hotel only has
+ * an int[] of fixed slots (block, offset and length of each section), so there is no map and no String per
+ * hotel. Text is decoded only when a section is read.
+ * The arena is append-only: bytes are never changed once written, and replacing the descriptions of a hotel
+ * leaves the old bytes unused in their block.
+ */
+class DescriptionStore {
+    static final int PROPERTY = 0;
+    static final int AREA = 1;
+    private static final int SLOTS_PER_SECTION = 3;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private final boolean compress;
+    // hotel id -> block, offset and length of the property section, then of the area section;
+    // length -1 marks a null section
+    private final IntMap<int[]> slots;
+    private final List<byte[]> blocks;
+    private int blockUsed;
+
+    /**
+     * Constructor for an empty DescriptionStore
+     *
+     * @param compress true to deflate the text of each section
+     */
+    DescriptionStore(boolean compress) {
+        this.compress = compress;
+        this.slots = new IntMap<>();
+        this.blocks = new ArrayList<>();
+        this.blockUsed = BLOCK_SIZE;
+    }
+
+    /**
+     * Copy constructor; the copy shares the blocks, whose written bytes never change, and is not affected
+     * by later puts on other
+     *
+     * @param other store to copy
+     */
+    DescriptionStore(DescriptionStore other) {
+        this.compress = other.compress;
+        this.slots = new IntMap<>(other.slots);
+        this.blocks = new ArrayList<>(other.blocks);
+        // the copy never writes into a block it shares with other
+        this.blockUsed = BLOCK_SIZE;
+    }
+
+    /**
+     * Stores the descriptions of a hotel, replacing the previous ones
+     *
+     * @param hotelId  hotel id
+     * @param property property description
+     * @param area     area description
+     */
+    void put(int hotelId, String property, String area) {
+        int[] hotelSlots = new int[2 * SLOTS_PER_SECTION];
+        append(hotelSlots, PROPERTY, property);
+        append(hotelSlots, AREA, area);
+        slots.put(hotelId, hotelSlots);
+    }
+
+    /**
+     * @param hotelId hotel id
+     * @return true if descriptions are stored for the hotel
+     */
+    boolean contains(int hotelId) {
+        return slots.containsKey(hotelId);
+    }
+
+    /**
+     * Decodes a section of the descriptions of a hotel
+     *
+     * @param hotelId hotel id
+     * @param section PROPERTY or AREA
+     * @return text of the section, or null if there are no descriptions for the hotel or the section is null
+     */
+    String get(int hotelId, int section) {
+        int[] hotelSlots = slots.get(hotelId);
+        if (hotelSlots == null) {
+            return null;
+        }
+        int slot = section * SLOTS_PER_SECTION;
+        int length = hotelSlots[slot + 2];
+        if (length < 0) {
+            return null;
+        }
+        if (length == 0) {
+            return "";
+        }
+        byte[] block = blocks.get(hotelSlots[slot]);
+        int offset = hotelSlots[slot + 1];
+        if (!compress) {
+            return new String(block, offset, length, StandardCharsets.UTF_8);
+        }
+        return inflate(block, offset, length);
+    }
+
+    /**
+     * Encodes a section into the arena and records where it is
+     *
+     * @param hotelSlots slots of the hotel
+     * @param section    PROPERTY or AREA
+     * @param text       text of the section, or null
+     */
+    private void append(int[] hotelSlots, int section, String text) {
+        if (text == null) {
+            hotelSlots[section * SLOTS_PER_SECTION + 2] = -1;
+            return;
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] compressed = new byte[length + 64];
+            length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            deflater.end();
+            bytes = compressed;
+        }
+        if (blockUsed + length > BLOCK_SIZE || blocks.isEmpty()) {
+            blocks.add(new byte[Math.max(BLOCK_SIZE, length)]);
+            blockUsed = 0;
+        }
+        int slot = section * SLOTS_PER_SECTION;
+        hotelSlots[slot] = blocks.size() - 1;
+        hotelSlots[slot + 1] = blockUsed;
+        hotelSlots[slot + 2] = length;
+        System.arraycopy(bytes, 0, blocks.get(blocks.size() - 1), blockUsed, length);
+        blockUsed += length;
+    }
+
+    /**
+     * Decompresses a section
+     *
+     * @param block  block holding the section
+     * @param offset offset of the section in the block
+     * @param length compressed length
+     * @return text of the section
+     */
+    private static String inflate(byte[] block, int offset, int length) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(block, offset, length);
+        ByteArrayOutputStream text = new ByteArrayOutputStream(length * 3);
+        byte[] buffer = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated description");
+                }
+                text.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt description", e);
+        } finally {
+            inflater.end();
+        }
+        return text.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,202 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Watches the html directory in a background thread and re-scrapes the pages that are created or
+ * modified, so descriptions are refreshed without restarting. A page is only scraped again if its
+ * modification time changed and its content hash differs from the last scraped version. Events are
+ * collected for a short quiet period and applied as one batch with stageDescriptions(), which keeps the
+ * published snapshot, followed by a single publishSnapshot(); reads keep being served from the previous
+ * snapshot without a lock while a batch is scraped, and see the whole batch once it is published.
+ * A page that can not be read or scraped is logged and skipped, and the watcher goes on.
+ * Deleting a page keeps the descriptions scraped from it.
+ */
+class DescriptionWatcher implements AutoCloseable {
+    private static final long QUIET_PERIOD_MILLIS = 200;
+    private final ThreadSafeHotelData hotelData;
+    private final Path directory;
+    private final WatchService watchService;
+    private final Thread thread;
+    // file name -> modification time and content hash of the version last seen
+    private final Map<String, PageState> pages = new HashMap<>();
+
+    /**
+     * Constructor for DescriptionWatcher; starts watching right away and records the modification time
+     * of every page already in the directory, so only changes made from now on are scraped again
+     *
+     * @param hotelData hotel data receiving the descriptions
+     * @param directory html directory
+     * @throws IOException if the directory can not be watched or listed
+     */
+    DescriptionWatcher(ThreadSafeHotelData hotelData, Path directory) throws IOException {
+        this.hotelData = hotelData;
+        this.directory = directory;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(directory)) {
+            for (Path file : filesList) {
+                String fileName = file.getFileName().toString();
+                if (TouristAttractionFinder.getHotelId(fileName) != null) {
+                    // the hash is computed on the first change, so startup does not read every page
+                    pages.put(fileName, new PageState(Files.getLastModifiedTime(file).toMillis(), null));
+                }
+            }
+        }
+        thread = new Thread(this::watch, "description-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching
+     */
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            watchService.close();
+            thread.join();
+        } catch (IOException e) {
+            System.out.println("IO Exception occurred while closing the description watcher: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for events, collects the changed file names until no event arrives for the quiet period,
+     * and refreshes them
+     */
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<String> changed = new LinkedHashSet<>();
+                boolean rescan = collect(watchService.take(), changed);
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    rescan |= collect(key, changed);
+                }
+                if (rescan) {
+                    // events were lost, so every page has to be checked
+                    try (DirectoryStream<Path> filesList = Files.newDirectoryStream(directory)) {
+                        for (Path file : filesList) {
+                            changed.add(file.getFileName().toString());
+                        }
+                    } catch (IOException e) {
+                        System.out.println("IO Exception occurred while listing " + directory);
+                    }
+                }
+                refresh(changed);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Adds the file names of the events of a key to changed and resets the key
+     *
+     * @param key     signalled key
+     * @param changed set collecting the changed file names
+     * @return true if events were lost and the directory has to be rescanned
+     */
+    private boolean collect(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changed.add(event.context().toString());
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    /**
+     * Scrapes the changed pages of known hotels and publishes a new snapshot if any description changed
+     *
+     * @param changed changed file names
+     */
+    private void refresh(Set<String> changed) {
+        int refreshed = 0;
+        for (String fileName : changed) {
+            String hotelId = TouristAttractionFinder.getHotelId(fileName);
+            Path file = directory.resolve(fileName);
+            try {
+                if (hotelId == null || hotelData.getHotel(Integer.parseInt(hotelId)) == null) {
+                    continue;
+                }
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                PageState previous = pages.get(fileName);
+                if (previous != null && previous.modified == modified) {
+                    continue;
+                }
+                long hash = hash(file);
+                pages.put(fileName, new PageState(modified, hash));
+                if (previous != null && previous.hash != null && previous.hash == hash) {
+                    // touched but not changed
+                    continue;
+                }
+                hotelData.stageDescriptions(hotelId, HtmlDescriptionScraper.scrape(file));
+                refreshed++;
+            } catch (IOException e) {
+                // the page may have been deleted or be half written; a later event picks it up again
+                System.out.println("IO Exception occurred while refreshing HTML file " + file);
+            } catch (RuntimeException e) {
+                // one bad page must not stop the watcher
+                System.out.println("Exception occurred while refreshing HTML file " + file + ": " + e);
+            }
+        }
+        if (refreshed > 0) {
+            hotelData.publishSnapshot();
+            System.out.println("Refreshed descriptions of " + refreshed + " hotels");
+        }
+    }
+
+    /**
+     * @param file page
+     * @return CRC32 of the content of the page
+     * @throws IOException if the page can not be read
+     */
+    private static long hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * Modification time and content hash of a page; the hash is null until the page is first read
+     */
+    private static class PageState {
+        private final long modified;
+        private final Long hash;
+
+        PageState(long modified, Long hash) {
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Spatial index over points given by latitude and longitude. The points are bucketed into a grid of
+ * cells of CELL_DEGREES x CELL_DEGREES, so radius and nearest neighbour queries only look at the cells
+ * around the query point instead of scanning every point. Longitude does not wrap around at 180 degrees.
+ *
+ * @param <T> type of the values stored with the points
+ */
+class GeoIndex<T> {
+    static final double EARTH_RADIUS_MILES = 3958.8;
+    private static final double CELL_DEGREES = 0.05;
+    private static final double MILES_PER_DEGREE = Math.PI * EARTH_RADIUS_MILES / 180;
+    private final Map<Long, List<Point<T>>> cells = new HashMap<>();
+    private int size;
+    private int minLatCell = Integer.MAX_VALUE;
+    private int maxLatCell = Integer.MIN_VALUE;
+    private int minLngCell = Integer.MAX_VALUE;
+    private int maxLngCell = Integer.MIN_VALUE;
+
+    /**
+     * Constructor for an empty GeoIndex
+     */
+    GeoIndex() {
+    }
+
+    /**
+     * Copy constructor; the copy shares the values but not the cells with other
+     *
+     * @param other index to copy
+     */
+    GeoIndex(GeoIndex<T> other) {
+        for (Map.Entry<Long, List<Point<T>>> entry : other.cells.entrySet()) {
+            cells.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        size = other.size;
+        minLatCell = other.minLatCell;
+        maxLatCell = other.maxLatCell;
+        minLngCell = other.minLngCell;
+        maxLngCell = other.maxLngCell;
+    }
+
+    /**
+     * Adds a point to the index
+     *
+     * @param lat   latitude
+     * @param lng   longitude
+     * @param value value stored with the point
+     */
+    void add(double lat, double lng, T value) {
+        int latCell = cell(lat);
+        int lngCell = cell(lng);
+        cells.computeIfAbsent(key(latCell, lngCell), k -> new ArrayList<>()).add(new Point<>(lat, lng, value));
+        size++;
+        minLatCell = Math.min(minLatCell, latCell);
+        maxLatCell = Math.max(maxLatCell, latCell);
+        minLngCell = Math.min(minLngCell, lngCell);
+        maxLngCell = Math.max(maxLngCell, lngCell);
+    }
+
+    /**
+     * Removes a point that was added with the same coordinates and an equal value
+     *
+     * @param lat   latitude
+     * @param lng   longitude
+     * @param value value stored with the point
+     */
+    void remove(double lat, double lng, T value) {
+        List<Point<T>> points = cells.get(key(cell(lat), cell(lng)));
+        if (points != null) {
+            int before = points.size();
+            points.removeIf(p -> p.value.equals(value));
+            size -= before - points.size();
+        }
+    }
+
+    /**
+     * @return number of points in the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the points within a radius of a location
+     *
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles radius in miles
+     * @return values of the points within the radius, nearest first
+     */
+    List<T> findWithinRadius(double lat, double lng, double radiusInMiles) {
+        List<Point<T>> found = new ArrayList<>();
+        double latDegrees = radiusInMiles / MILES_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + latDegrees)));
+        double lngDegrees = cos > 1e-6 ? radiusInMiles / (MILES_PER_DEGREE * cos) : 360;
+        int fromLat = Math.max(minLatCell, cell(lat - latDegrees));
+        int toLat = Math.min(maxLatCell, cell(lat + latDegrees));
+        int fromLng = Math.max(minLngCell, cell(lng - lngDegrees));
+        int toLng = Math.min(maxLngCell, cell(lng + lngDegrees));
+        if (fromLat > toLat || fromLng > toLng) {
+            return new ArrayList<>();
+        }
+        if ((long) (toLat - fromLat + 1) * (toLng - fromLng + 1) > cells.size()) {
+            // the box covers more cells than are occupied, so checking the occupied cells is cheaper
+            for (List<Point<T>> points : cells.values()) {
+                collectWithinRadius(points, lat, lng, radiusInMiles, found);
+            }
+        } else {
+            for (int latCell = fromLat; latCell <= toLat; latCell++) {
+                for (int lngCell = fromLng; lngCell <= toLng; lngCell++) {
+                    List<Point<T>> points = cells.get(key(latCell, lngCell));
+                    if (points != null) {
+                        collectWithinRadius(points, lat, lng, radiusInMiles, found);
+                    }
+                }
+            }
+        }
+        found.sort(Comparator.comparingDouble(p -> p.distance));
+        List<T> values = new ArrayList<>(found.size());
+        for (Point<T> p : found) {
+            values.add(p.value);
+        }
+        return values;
+    }
+
+    /**
+     * Finds the k points nearest to a location. Cells are visited in rings of growing distance around
+     * the cell of the location, until no unvisited cell can hold a point nearer than the k-th found so far.
+     * The rings start at the first one that reaches the bounding box of the occupied cells and only visit
+     * the cells inside the box. If the walk visits more cells than are occupied, as it does for a location
+     * far from all points, the occupied cells are checked directly instead.
+     *
+     * @param lat latitude of the location
+     * @param lng longitude of the location
+     * @param k   number of points to find
+     * @return values of the nearest points, nearest first
+     */
+    List<T> findNearest(double lat, double lng, int k) {
+        if (k <= 0 || size == 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Point<T>> nearest = new PriorityQueue<>(Comparator.comparingDouble((Point<T> p) -> p.distance).reversed());
+        int latCell = cell(lat);
+        int lngCell = cell(lng);
+        int firstRing = Math.max(Math.max(minLatCell - latCell, latCell - maxLatCell),
+                Math.max(minLngCell - lngCell, lngCell - maxLngCell));
+        int maxRing = Math.max(Math.max(Math.abs(latCell - minLatCell), Math.abs(latCell - maxLatCell)),
+                Math.max(Math.abs(lngCell - minLngCell), Math.abs(lngCell - maxLngCell)));
+        long visited = 0;
+        for (int ring = Math.max(0, firstRing); ring <= maxRing; ring++) {
+            if (nearest.size() == k && nearest.peek().distance <= ringDistance(lat, ring)) {
+                break;
+            }
+            int fromLat = Math.max(-ring, minLatCell - latCell);
+            int toLat = Math.min(ring, maxLatCell - latCell);
+            int fromLng = Math.max(-ring, minLngCell - lngCell);
+            int toLng = Math.min(ring, maxLngCell - lngCell);
+            for (int dLat = fromLat; dLat <= toLat; dLat++) {
+                boolean edge = Math.abs(dLat) == ring;
+                for (int dLng = fromLng; dLng <= toLng; dLng++) {
+                    if (!edge && Math.abs(dLng) != ring) {
+                        // the inner cells of the row belong to earlier rings
+                        dLng = ring - 1;
+                        continue;
+                    }
+                    if (++visited > cells.size()) {
+                        // the walk costs more than checking every occupied cell
+                        nearest.clear();
+                        for (List<Point<T>> points : cells.values()) {
+                            collectNearest(points, lat, lng, k, nearest);
+                        }
+                        return sortedValues(nearest);
+                    }
+                    List<Point<T>> points = cells.get(key(latCell + dLat, lngCell + dLng));
+                    if (points != null) {
+                        collectNearest(points, lat, lng, k, nearest);
+                    }
+                }
+            }
+        }
+        return sortedValues(nearest);
+    }
+
+    /**
+     * Adds the points of a cell to nearest, keeping only the k points nearest to the location
+     *
+     * @param points  points of a cell
+     * @param lat     latitude of the location
+     * @param lng     longitude of the location
+     * @param k       number of points to keep
+     * @param nearest nearest points found so far, farthest at the head
+     */
+    private void collectNearest(List<Point<T>> points, double lat, double lng, int k,
+                                PriorityQueue<Point<T>> nearest) {
+        for (Point<T> p : points) {
+            double distance = distanceInMiles(lat, lng, p.lat, p.lng);
+            if (nearest.size() < k) {
+                nearest.add(p.withDistance(distance));
+            } else if (distance < nearest.peek().distance) {
+                nearest.poll();
+                nearest.add(p.withDistance(distance));
+            }
+        }
+    }
+
+    /**
+     * @param nearest points with their distance
+     * @return values of the points, nearest first
+     */
+    private List<T> sortedValues(PriorityQueue<Point<T>> nearest) {
+        List<T> values = new ArrayList<>(nearest.size());
+        List<Point<T>> sorted = new ArrayList<>(nearest);
+        sorted.sort(Comparator.comparingDouble(p -> p.distance));
+        for (Point<T> p : sorted) {
+            values.add(p.value);
+        }
+        return values;
+    }
+
+    /**
+     * Great circle distance between two locations (haversine formula)
+     *
+     * @param lat1 latitude of the first location
+     * @param lng1 longitude of the first location
+     * @param lat2 latitude of the second location
+     * @param lng2 longitude of the second location
+     * @return distance in miles
+     */
+    static double distanceInMiles(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Lower bound of the distance from a location to any point in the cells of the given ring or beyond:
+     * such a point is at least ring - 1 whole cells away in latitude or longitude.
+     *
+     * @param lat  latitude of the location
+     * @param ring ring number
+     * @return distance in miles
+     */
+    private static double ringDistance(double lat, int ring) {
+        double degrees = Math.max(0, ring - 1) * CELL_DEGREES;
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + degrees + CELL_DEGREES)));
+        return degrees * MILES_PER_DEGREE * Math.max(0, cos);
+    }
+
+    /**
+     * Adds the points of a cell that are within the radius to found
+     *
+     * @param points        points of a cell
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles radius in miles
+     * @param found         list collecting the points with their distance
+     */
+    private void collectWithinRadius(List<Point<T>> points, double lat, double lng, double radiusInMiles,
+                                     List<Point<T>> found) {
+        for (Point<T> p : points) {
+            double distance = distanceInMiles(lat, lng, p.lat, p.lng);
+            if (distance <= radiusInMiles) {
+                found.add(p.withDistance(distance));
+            }
+        }
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long key(int latCell, int lngCell) {
+        return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    /**
+     * Point stored in a cell, with the distance to the query location while a query runs
+     */
+    private static class Point<T> {
+        private final double lat;
+        private final double lng;
+        private final T value;
+        private final double distance;
+
+        Point(double lat, double lng, T value) {
+            this(lat, lng, value, 0);
+        }
+
+        Point(double lat, double lng, T value, double distance) {
+            this.lat = lat;
+            this.lng = lng;
+            this.value = value;
+            this.distance = distance;
+        }
+
+        Point<T> withDistance(double distance) {
+            return new Point<>(lat, lng, value, distance);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package hotelapp;
 
-import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -13,9 +15,90 @@ import java.util.*;
 public class HotelData {
 
     private static final String ASTERISKS = "********************";
-    private Map<Integer, Hotel> hotelDetailsMap = new HashMap<>();
-    private Map<Integer, List<TouristAttraction>> touristAttractionMap = new HashMap<>();
-    private Map<Integer, Map<String, String>> descriptionsMap = new HashMap<>();
+    private static final int CITY_TOP_ATTRACTIONS = 50;
+    private IntMap<Hotel> hotelDetailsMap;
+    private HotelStore hotelStore;
+    private AttractionTable attractionTable;
+    // hotel id -> handles of its attractions in the attraction table; the arrays are never changed in place
+    private IntMap<int[]> touristAttractionMap = new IntMap<>();
+    private DescriptionStore descriptions;
+    private DescriptionIndex descriptionIndex = new DescriptionIndex();
+    private SortedIdSet sortedHotelIds = new SortedIdSet();
+    private GeoIndex<Integer> hotelLocations = new GeoIndex<>();
+    private NamePrefixIndex hotelNames = new NamePrefixIndex();
+    // handles of the attractions added to the attraction spatial index
+    private BitSet locatedAttractions = new BitSet();
+    private GeoIndex<TouristAttraction> attractionLocations = new GeoIndex<>();
+    // normalized city or state -> ids of the hotels in it
+    private Map<String, SortedIdSet> cityIndex = new HashMap<>();
+    private Map<String, SortedIdSet> stateIndex = new HashMap<>();
+    // normalized city -> best rated attractions near the hotels of the city
+    private Map<String, TopAttractions> cityAttractions = new HashMap<>();
+
+    /**
+     * Default constructor for HotelData
+     */
+    public HotelData() {
+        this(false);
+    }
+
+    /**
+     * Constructor for HotelData
+     *
+     * @param compressDescriptions true to keep the descriptions deflate compressed
+     */
+    public HotelData(boolean compressDescriptions) {
+        this(compressDescriptions, false);
+    }
+
+    /**
+     * Constructor for HotelData
+     *
+     * @param compressDescriptions true to keep the descriptions deflate compressed
+     * @param columnarHotels       true to keep the hotels in a columnar HotelStore instead of Hotel objects
+     */
+    public HotelData(boolean compressDescriptions, boolean columnarHotels) {
+        descriptions = new DescriptionStore(compressDescriptions);
+        attractionTable = new AttractionTable();
+        if (columnarHotels) {
+            hotelStore = new HotelStore();
+        } else {
+            hotelDetailsMap = new IntMap<>();
+        }
+    }
+
+    /**
+     * Copy constructor; creates a copy of the data of other that does not change when other changes.
+     * The copy is used as an immutable snapshot, so it must not be modified after it has been created.
+     *
+     * @param other HotelData to copy
+     */
+    protected HotelData(HotelData other) {
+        if (other.hotelStore != null) {
+            hotelStore = new HotelStore(other.hotelStore);
+        } else {
+            hotelDetailsMap = new IntMap<>(other.hotelDetailsMap);
+        }
+        // the attraction table is append-only, so the copy shares it
+        attractionTable = other.attractionTable;
+        touristAttractionMap = new IntMap<>(other.touristAttractionMap);
+        descriptions = new DescriptionStore(other.descriptions);
+        descriptionIndex = new DescriptionIndex(other.descriptionIndex);
+        sortedHotelIds = new SortedIdSet(other.sortedHotelIds);
+        hotelLocations = new GeoIndex<>(other.hotelLocations);
+        hotelNames = new NamePrefixIndex(other.hotelNames);
+        for (Map.Entry<String, SortedIdSet> entry : other.cityIndex.entrySet()) {
+            cityIndex.put(entry.getKey(), new SortedIdSet(entry.getValue()));
+        }
+        for (Map.Entry<String, SortedIdSet> entry : other.stateIndex.entrySet()) {
+            stateIndex.put(entry.getKey(), new SortedIdSet(entry.getValue()));
+        }
+        locatedAttractions = (BitSet) other.locatedAttractions.clone();
+        attractionLocations = new GeoIndex<>(other.attractionLocations);
+        for (Map.Entry<String, TopAttractions> entry : other.cityAttractions.entrySet()) {
+            cityAttractions.put(entry.getKey(), new TopAttractions(entry.getValue()));
+        }
+    }
 
     /**
      * This method will create a Hotel with the given  parameters, and add it to the appropriate data
@@ -31,12 +114,29 @@ public class HotelData {
      */
     public void addHotel(String hotelId, String hotelName, String city, String state, String streetAddress, double lat,
                          double lon) {
-        Hotel hotel = new Hotel(hotelId, hotelName, city, state, streetAddress, lat, lon);
-        hotelDetailsMap.put(Integer.parseInt(hotelId), hotel);
+        int id = Integer.parseInt(hotelId);
+        Hotel previous;
+        if (hotelStore != null) {
+            previous = hotelStore.get(id);
+            hotelStore.put(id, hotelName, city, state, streetAddress, lat, lon);
+        } else {
+            previous = hotelDetailsMap.put(id, new Hotel(hotelId, hotelName, city, state, streetAddress, lat, lon));
+        }
+        if (previous != null) {
+            hotelLocations.remove(previous.getLat(), previous.getLng(), id);
+            hotelNames.remove(previous.getF(), id);
+            removeFromIndex(cityIndex, previous.getCi(), id);
+            removeFromIndex(stateIndex, previous.getPr(), id);
+        }
+        sortedHotelIds.add(id);
+        hotelLocations.add(lat, lon, id);
+        hotelNames.add(hotelName, id);
+        cityIndex.computeIfAbsent(locationKey(city), k -> new SortedIdSet()).add(id);
+        stateIndex.computeIfAbsent(locationKey(state), k -> new SortedIdSet()).add(id);
     }
 
     /**
-     * This will add tourist attraction the the map
+     * This will add tourist attraction with an unknown location the the map
      *
      * @param hotelId hotel id
      * @param id      attraction
@@ -45,41 +145,409 @@ public class HotelData {
      * @param address address of attraction
      */
     protected void addTouristAttraction(String hotelId, String id, String name, double rating, String address) {
-        TouristAttraction attraction = new TouristAttraction(id, name, rating, address);
+        addTouristAttraction(hotelId, id, name, rating, address, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * This will add tourist attraction the the map. The attraction is stored once in the attraction table,
+     * however many hotels it is near, and the hotel refers to it by its handle.
+     *
+     * @param hotelId hotel id
+     * @param id      attraction
+     * @param name    attraction name
+     * @param rating  rating of attraction
+     * @param address address of attraction
+     * @param lat     latitude of attraction, NaN if unknown
+     * @param lng     longitude of attraction, NaN if unknown
+     */
+    protected void addTouristAttraction(String hotelId, String id, String name, double rating, String address,
+                                        double lat, double lng) {
+        addTouristAttraction(hotelId, addToAttractionTable(id, name, rating, address, lat, lng));
+    }
+
+    /**
+     * Adds an attraction to the attraction table, unless an attraction with the same id is in it already.
+     * The table is safe to add to from several threads at once, without holding any lock of this HotelData.
+     *
+     * @param id      attraction
+     * @param name    attraction name
+     * @param rating  rating of attraction
+     * @param address address of attraction
+     * @param lat     latitude of attraction, NaN if unknown
+     * @param lng     longitude of attraction, NaN if unknown
+     * @return handle of the attraction
+     */
+    protected final int addToAttractionTable(String id, String name, double rating, String address, double lat,
+                                             double lng) {
+        return attractionTable.add(id, name, rating, address, lat, lng);
+    }
+
+    /**
+     * Adds an attraction of the attraction table to the attractions of a hotel. Attractions with a known
+     * location are added to the attraction spatial index the first time they are added for any hotel.
+     * The attractions of a hotel are kept in descending rating order (in arrival order for equal ratings),
+     * and the attraction is offered to the rollup of the best attractions of the city of the hotel.
+     *
+     * @param hotelId hotel id
+     * @param handle  handle of the attraction, returned by addToAttractionTable()
+     */
+    protected void addTouristAttraction(String hotelId, int handle) {
+        TouristAttraction attraction = attractionTable.get(handle);
+        if (!locatedAttractions.get(handle)) {
+            locatedAttractions.set(handle);
+            if (attraction.hasLocation()) {
+                attractionLocations.add(attraction.getLat(), attraction.getLng(), attraction);
+            }
+        }
         int h = Integer.parseInt(hotelId);
-        if (touristAttractionMap.containsKey(h)) {
-            List<TouristAttraction> touristAttractionList = touristAttractionMap.get(h);
-            touristAttractionList.add(attraction);
-        } else {
-            List<TouristAttraction> touristAttractionList = new ArrayList<>();
-            touristAttractionList.add(attraction);
-            touristAttractionMap.put(h, touristAttractionList);
+        int[] handles = touristAttractionMap.get(h);
+        if (handles == null) {
+            handles = new int[0];
+        }
+        int at = ratingPosition(handles, attraction.getRating());
+        int[] updated = new int[handles.length + 1];
+        System.arraycopy(handles, 0, updated, 0, at);
+        updated[at] = handle;
+        System.arraycopy(handles, at, updated, at + 1, handles.length - at);
+        touristAttractionMap.put(h, updated);
+        Hotel hotel = lookupHotel(h);
+        if (hotel != null) {
+            cityAttractions.computeIfAbsent(locationKey(hotel.getCi()), c -> new TopAttractions(CITY_TOP_ATTRACTIONS))
+                    .offer(attraction);
+        }
+    }
+
+    /**
+     * Removes a hotel from the entry of a city or state index, and the entry if it becomes empty
+     *
+     * @param index   city or state index
+     * @param value   city or state
+     * @param hotelId id of the hotel
+     */
+    private static void removeFromIndex(Map<String, SortedIdSet> index, String value, int hotelId) {
+        String key = locationKey(value);
+        SortedIdSet hotelIds = index.get(key);
+        if (hotelIds != null && hotelIds.remove(hotelId) && hotelIds.isEmpty()) {
+            index.remove(key);
         }
     }
 
+    /**
+     * Finds where an attraction goes in the attractions of a hotel, sorted by descending rating: after every
+     * attraction rated the same or higher
+     *
+     * @param handles handles of the attractions, sorted by descending rating
+     * @param rating  rating of the attraction
+     * @return insertion index
+     */
+    private int ratingPosition(int[] handles, double rating) {
+        int low = 0;
+        int high = handles.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (attractionTable.get(handles[mid]).getRating() >= rating) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 
     /**
-     * This method will add description details into the descriptionsMap map
+     * Normalizes a city or state name for the city and state indexes
+     *
+     * @param city city or state name
+     * @return trimmed, lower case name
+     */
+    static String locationKey(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * This method will add description details into the description store and the full-text index,
+     * replacing the descriptions previously added for the hotel
      *
      * @param hotelId hotel id
      * @param descMap map with property and area desc
      */
     protected void addDescriptions(String hotelId, Map<String, String> descMap) {
         int h = Integer.parseInt(hotelId);
-        if (!descriptionsMap.containsKey(h)) {
-            descriptionsMap.put(h, descMap);
+        String property = descMap.get(HtmlDescriptionScraper.PROPERTY_DESC);
+        String area = descMap.get(HtmlDescriptionScraper.AREA_DESC);
+        descriptions.put(h, property, area);
+        // a missing section adds no terms; "null" + " " + area would index the word null
+        StringBuilder text = new StringBuilder();
+        if (property != null) {
+            text.append(property);
         }
+        if (area != null) {
+            text.append(' ').append(area);
+        }
+        descriptionIndex.add(h, text.toString());
     }
 
 
     /**
      * This method will return list of Hotel Ids
      *
-     * @return Return an alphabetized list of the ids of all hotels
+     * @return Return the ids of all hotels, sorted in ascending numeric order
      */
     public List<String> getHotels() {
+        return toIdList(sortedHotelIds.iterator(Integer.MIN_VALUE, true), Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method will return the ids of the hotels in a range of ids
+     *
+     * @param fromId lowest id of the range (inclusive)
+     * @param toId   highest id of the range (inclusive)
+     * @return ids of the hotels in the range, sorted in ascending numeric order
+     */
+    public List<String> getHotelsInRange(int fromId, int toId) {
+        if (fromId > toId) {
+            return new ArrayList<>();
+        }
+        return toIdList(sortedHotelIds.iterator(fromId, true), toId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method will return one page of hotel ids. Pass the last id of a page as afterId to get the
+     * next page, or Integer.MIN_VALUE to get the first page.
+     *
+     * @param afterId  the page starts with the first hotel id greater than afterId
+     * @param pageSize maximum number of ids in the page
+     * @return ids of the page, sorted in ascending numeric order; empty after the last page
+     */
+    public List<String> getHotelPage(int afterId, int pageSize) {
+        return toIdList(sortedHotelIds.iterator(afterId, false), Integer.MAX_VALUE, pageSize);
+    }
+
+    /**
+     * This method will return one page of the ids of the hotels in a city, a state, or a city of a state,
+     * ignoring case. Only the hotels of the smaller of the two index entries are visited, so a page costs
+     * time proportional to the matches it skips and returns rather than to the number of hotels.
+     *
+     * @param city     city, or null for any city
+     * @param state    state, or null for any state
+     * @param afterId  the page starts with the first matching hotel id greater than afterId
+     * @param pageSize maximum number of ids in the page
+     * @return ids of the page, sorted in ascending numeric order; empty after the last page
+     */
+    public List<String> getHotelPageByLocation(String city, String state, int afterId, int pageSize) {
+        if (city == null && state == null) {
+            return getHotelPage(afterId, pageSize);
+        }
+        SortedIdSet cityHotels = city != null ? cityIndex.get(locationKey(city)) : null;
+        SortedIdSet stateHotels = state != null ? stateIndex.get(locationKey(state)) : null;
+        if ((city != null && cityHotels == null) || (state != null && stateHotels == null)) {
+            return new ArrayList<>();
+        }
+        if (cityHotels == null || stateHotels == null) {
+            SortedIdSet hotels = cityHotels != null ? cityHotels : stateHotels;
+            return toIdList(hotels.iterator(afterId, false), Integer.MAX_VALUE, pageSize);
+        }
+        SortedIdSet smaller = cityHotels.size() <= stateHotels.size() ? cityHotels : stateHotels;
+        SortedIdSet larger = smaller == cityHotels ? stateHotels : cityHotels;
         List<String> hotelIds = new ArrayList<>();
-        for (Integer hotelId : hotelDetailsMap.keySet()) {
+        PrimitiveIterator.OfInt ids = smaller.iterator(afterId, false);
+        while (ids.hasNext() && hotelIds.size() < pageSize) {
+            int hotelId = ids.nextInt();
+            if (larger.contains(hotelId)) {
+                hotelIds.add(String.valueOf(hotelId));
+            }
+        }
+        return hotelIds;
+    }
+
+    /**
+     * Finds the hotels within a radius of a location
+     *
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles radius in miles
+     * @return hotels within the radius, nearest first
+     */
+    public List<Hotel> getHotelsNear(double lat, double lng, double radiusInMiles) {
+        return toHotelList(hotelLocations.findWithinRadius(lat, lng, radiusInMiles));
+    }
+
+    /**
+     * Finds the k hotels nearest to a location
+     *
+     * @param lat latitude of the location
+     * @param lng longitude of the location
+     * @param k   number of hotels to find
+     * @return nearest hotels, nearest first
+     */
+    public List<Hotel> getNearestHotels(double lat, double lng, int k) {
+        return toHotelList(hotelLocations.findNearest(lat, lng, k));
+    }
+
+    /**
+     * Finds the stored attractions within a radius of a location
+     *
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles radius in miles
+     * @return attractions within the radius, nearest first
+     */
+    public List<TouristAttraction> getAttractionsNear(double lat, double lng, double radiusInMiles) {
+        return attractionLocations.findWithinRadius(lat, lng, radiusInMiles);
+    }
+
+    /**
+     * Returns the best rated attractions near the hotels of a city
+     *
+     * @param city city, ignoring case
+     * @param k    maximum number of attractions to return (at most 50 are kept per city)
+     * @return attractions, best rated first
+     */
+    public List<TouristAttraction> getTopAttractionsInCity(String city, int k) {
+        TopAttractions top = cityAttractions.get(locationKey(city));
+        return top != null ? top.top(k) : new ArrayList<>();
+    }
+
+    /**
+     * Finds the hotels whose names start with a prefix, ignoring case
+     *
+     * @param prefix prefix of the hotel name
+     * @param n      maximum number of hotels to return
+     * @return ids of the hotels in alphabetical order of their names
+     */
+    public List<String> suggestHotels(String prefix, int n) {
+        List<String> hotelIds = new ArrayList<>();
+        for (int hotelId : hotelNames.findByPrefix(prefix, n)) {
+            hotelIds.add(String.valueOf(hotelId));
+        }
+        return hotelIds;
+    }
+
+    /**
+     * Finds the hotels whose descriptions match the query terms best, ranked with BM25
+     *
+     * @param query query terms
+     * @param k     maximum number of hotels to return
+     * @return ids of the matching hotels, best match first
+     */
+    public List<String> searchDescriptions(String query, int k) {
+        List<String> hotelIds = new ArrayList<>();
+        for (int hotelId : descriptionIndex.search(query, k)) {
+            hotelIds.add(String.valueOf(hotelId));
+        }
+        return hotelIds;
+    }
+
+    /**
+     * Returns the attractions added for a hotel
+     *
+     * @param hotelId id of the hotel
+     * @return attractions, best rated first; empty if there are none
+     */
+    List<TouristAttraction> getAttractions(int hotelId) {
+        return attractionList(hotelId);
+    }
+
+    /**
+     * Resolves a batch of lookups and passes the results to the sink in batch order
+     *
+     * @param batch lookups to resolve
+     * @param sink  receiver of the results
+     * @throws IOException if the sink can not write a result
+     */
+    void lookup(BatchLookup batch, BatchLookup.Sink sink) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            int hotelId = batch.getHotelId(i);
+            Hotel hotel = lookupHotel(hotelId);
+            switch (batch.getKind(i)) {
+                case HOTEL:
+                    sink.hotel(hotelId, hotel);
+                    break;
+                case ATTRACTIONS:
+                    sink.attractions(hotelId, hotel, attractionList(hotelId));
+                    break;
+                case DESCRIPTIONS:
+                    sink.descriptions(hotelId, hotel, descriptions.get(hotelId, DescriptionStore.PROPERTY),
+                            descriptions.get(hotelId, DescriptionStore.AREA));
+                    break;
+            }
+        }
+    }
+
+    private List<TouristAttraction> attractionList(int hotelId) {
+        List<TouristAttraction> touristAttractionList = new ArrayList<>();
+        int[] handles = touristAttractionMap.get(hotelId);
+        if (handles != null) {
+            for (int handle : handles) {
+                touristAttractionList.add(attractionTable.get(handle));
+            }
+        }
+        return touristAttractionList;
+    }
+
+    /**
+     * Returns a section of the descriptions of a hotel
+     *
+     * @param hotelId id of the hotel
+     * @param section DescriptionStore.PROPERTY or DescriptionStore.AREA
+     * @return text of the section, or null if there are no descriptions for the hotel or the section is null
+     */
+    String getDescription(int hotelId, int section) {
+        return descriptions.get(hotelId, section);
+    }
+
+    /**
+     * Checks whether descriptions were added for a hotel
+     *
+     * @param hotelId id of the hotel
+     * @return true if there are descriptions for the hotel, even if their sections are null
+     */
+    boolean hasDescriptions(int hotelId) {
+        return descriptions.contains(hotelId);
+    }
+
+    /**
+     * Writes a binary snapshot of the hotels, attractions and descriptions, which SnapshotFile.load()
+     * reads back on a later start
+     *
+     * @param filename    snapshot file
+     * @param fingerprint fingerprint of the sources the data was built from
+     * @throws IOException if the file can not be written
+     */
+    public void writeSnapshot(Path filename, long fingerprint) throws IOException {
+        SnapshotFile.write(this, filename, fingerprint);
+    }
+
+    /**
+     * Looks up the hotels of a list of hotel ids
+     *
+     * @param ids hotel ids
+     * @return hotels in the order of the ids
+     */
+    private List<Hotel> toHotelList(List<Integer> ids) {
+        List<Hotel> hotels = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            hotels.add(lookupHotel(id));
+        }
+        return hotels;
+    }
+
+    /**
+     * Copies at most limit ids into a list of strings, stopping at the first id greater than toId
+     *
+     * @param ids   ids in ascending order
+     * @param toId  highest id to copy
+     * @param limit maximum number of ids to copy
+     * @return list of ids
+     */
+    private List<String> toIdList(PrimitiveIterator.OfInt ids, int toId, int limit) {
+        List<String> hotelIds = new ArrayList<>();
+        while (ids.hasNext() && hotelIds.size() < limit) {
+            int hotelId = ids.nextInt();
+            if (hotelId > toId) {
+                break;
+            }
             hotelIds.add(String.valueOf(hotelId));
         }
         return hotelIds;
@@ -95,7 +563,7 @@ public class HotelData {
         int hotelId = id != null ? isInteger(id) : 0;
         if (hotelId > 0) {
             StringBuilder sb = new StringBuilder();
-            Hotel hotel = hotelDetailsMap.get(hotelId);
+            Hotel hotel = getHotel(hotelId);
             if (hotel != null) {
                 sb.append("Hotel details of hotelId -- ");
                 sb.append(hotelId);
@@ -116,11 +584,21 @@ public class HotelData {
      * @param id hotel id
      */
     protected void findAttractionById(String id) {
+        findAttractionById(id, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method will retrieve the k best rated attractions of particular hotel id
+     *
+     * @param id hotel id
+     * @param k  maximum number of attractions
+     */
+    protected void findAttractionById(String id, int k) {
         int hotelId = id != null ? isInteger(id) : 0;
         if (hotelId > 0) {
-            String attractionString = toStringAttraction(id);
+            String attractionString = k == Integer.MAX_VALUE ? toStringAttraction(id) : toStringAttraction(id, k);
             if (attractionString != null && attractionString.length() > 0) {
-                System.out.println(toStringAttraction(id));
+                System.out.println(attractionString);
             } else {
                 System.out.println("No Tourist Attraction found for Hotel :" + hotelId);
             }
@@ -158,18 +636,29 @@ public class HotelData {
             if (filename == null) {
                 return;
             }
-            PrintWriter print = new PrintWriter(filename.toFile());
-            List<String> lisOfHotelIds = getHotels();
-            Collections.sort(lisOfHotelIds);
-            for (String hotelId : lisOfHotelIds) {
-                print.write(System.lineSeparator());
-                print.write(ASTERISKS);
-                print.write(System.lineSeparator());
-                print.write(toString(hotelId));
+            // records are rendered by worker threads, so they must not go through overridden methods that lock
+            if (hotelStore != null) {
+                // columnar hotels are scanned in id order through the row index, straight from the columns
+                HotelStore store = hotelStore;
+                long[] rows = store.rowIndex();
+                ReportWriter.write(filename, rows.length, (record, out) -> {
+                    int row = HotelStore.rowOf(rows[record]);
+                    out.append(System.lineSeparator());
+                    out.append(ASTERISKS);
+                    out.append(System.lineSeparator());
+                    appendHotel(out, String.valueOf(store.getId(row)), store.getName(row), store.getStreet(row),
+                            store.getCity(row), store.getState(row));
+                });
+                return;
             }
-            print.flush();
-            print.close();
-        } catch (FileNotFoundException e) {
+            ReportWriter.write(filename, (afterId, pageSize) -> toIdList(sortedHotelIds.iterator(afterId, false),
+                    Integer.MAX_VALUE, pageSize), (hotelId, out) -> {
+                out.append(System.lineSeparator());
+                out.append(ASTERISKS);
+                out.append(System.lineSeparator());
+                appendHotel(hotelId, out);
+            });
+        } catch (IOException e) {
             System.out.println("Error occurred while printing the file" + filename);
         }
     }
@@ -192,23 +681,48 @@ public class HotelData {
      * @return - output string.
      */
     public String toString(String hotelId) {
-        Hotel hotel = hotelDetailsMap.get(Integer.parseInt(hotelId));
         StringBuilder builder = new StringBuilder();
+        appendHotel(hotelId, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the string representation of a hotel described in toString(hotelId)
+     *
+     * @param hotelId id of the hotel
+     * @param builder builder to append to; nothing is appended if there is no hotel with the id
+     */
+    private void appendHotel(String hotelId, StringBuilder builder) {
+        Hotel hotel = lookupHotel(Integer.parseInt(hotelId));
         if (hotel != null) {
-            builder.append(hotel.getF());
-            builder.append(":");
-            builder.append(" ");
-            builder.append(hotelId);
-            builder.append(System.lineSeparator());
-            builder.append(hotel.getAd());
-            builder.append(System.lineSeparator());
-            builder.append(hotel.getCi());
-            builder.append(",");
-            builder.append(" ");
-            builder.append(hotel.getPr());
-            builder.append(System.lineSeparator());
+            appendHotel(builder, hotelId, hotel.getF(), hotel.getAd(), hotel.getCi(), hotel.getPr());
         }
-        return builder.toString();
+    }
+
+    /**
+     * Appends the string representation of a hotel described in toString(hotelId) from its fields
+     *
+     * @param builder builder to append to
+     * @param hotelId id of the hotel
+     * @param name    hotel name
+     * @param street  street address
+     * @param city    city
+     * @param state   state
+     */
+    private static void appendHotel(StringBuilder builder, String hotelId, String name, String street, String city,
+                                    String state) {
+        builder.append(name);
+        builder.append(":");
+        builder.append(" ");
+        builder.append(hotelId);
+        builder.append(System.lineSeparator());
+        builder.append(street);
+        builder.append(System.lineSeparator());
+        builder.append(city);
+        builder.append(",");
+        builder.append(" ");
+        builder.append(state);
+        builder.append(System.lineSeparator());
     }
 
 
@@ -220,18 +734,108 @@ public class HotelData {
      */
     void parseTouristAttractionJson(String json, String hotelId) {
         if (json != null && json.length() > 0) {
-            JsonElement ele = new JsonParser().parse(json);
-            JsonObject jsonObject = ele.getAsJsonObject();
-            JsonArray ar = jsonObject.getAsJsonArray("results");
-            for (int i = 0; i < ar.size(); i++) {
-                JsonObject jsonObject1 = ar.get(i).getAsJsonObject();
-                String id = jsonObject1.get("id").getAsString();
-                String name = jsonObject1.get("name").getAsString();
-                String address = jsonObject1.get("formatted_address").getAsString();
-                double rating = jsonObject1.get("rating").getAsDouble();
-                addTouristAttraction(hotelId, id, name, rating, address);
+            try {
+                parseTouristAttractionJson(new StringReader(json), hotelId);
+            } catch (IOException | IllegalStateException e) {
+                System.out.println("Exception occurred while parsing attractions of hotel " + hotelId + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * This method will parse tourist attraction json of particular hotel id token by token from the reader,
+     * adding each attraction of the "results" array as soon as it has been read. The reader is not closed.
+     *
+     * @param reader  reader of the json
+     * @param hotelId hotel id
+     * @return value of the "status" field of the response, or null if it has none
+     * @throws IOException if the json can not be read
+     */
+    String parseTouristAttractionJson(Reader reader, String hotelId) throws IOException {
+        String status = null;
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (name.equals("results") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    parseTouristAttraction(jsonReader, hotelId);
+                }
+                jsonReader.endArray();
+            } else if (name.equals("status") && jsonReader.peek() == JsonToken.STRING) {
+                status = jsonReader.nextString();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return status;
+    }
+
+    /**
+     * Reads one attraction object of the "results" array and adds it to the attractions of the hotel
+     *
+     * @param jsonReader reader positioned at the start of an attraction object
+     * @param hotelId    hotel id
+     * @throws IOException if the json can not be read
+     */
+    private void parseTouristAttraction(JsonReader jsonReader, String hotelId) throws IOException {
+        String id = null;
+        String name = null;
+        String address = null;
+        double rating = 0;
+        double lat = Double.NaN;
+        double lng = Double.NaN;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "id":
+                    id = jsonReader.nextString();
+                    break;
+                case "name":
+                    name = jsonReader.nextString();
+                    break;
+                case "formatted_address":
+                    address = jsonReader.nextString();
+                    break;
+                case "rating":
+                    rating = jsonReader.nextDouble();
+                    break;
+                case "geometry":
+                    if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                        jsonReader.skipValue();
+                        break;
+                    }
+                    jsonReader.beginObject();
+                    while (jsonReader.hasNext()) {
+                        if (jsonReader.nextName().equals("location") && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                            jsonReader.beginObject();
+                            while (jsonReader.hasNext()) {
+                                String coordinate = jsonReader.nextName();
+                                if (coordinate.equals("lat")) {
+                                    lat = jsonReader.nextDouble();
+                                } else if (coordinate.equals("lng")) {
+                                    lng = jsonReader.nextDouble();
+                                } else {
+                                    jsonReader.skipValue();
+                                }
+                            }
+                            jsonReader.endObject();
+                        } else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endObject();
+                    break;
+                default:
+                    jsonReader.skipValue();
             }
         }
+        jsonReader.endObject();
+        if (id != null) {
+            addTouristAttraction(hotelId, id, name, rating, address, lat, lng);
+        }
     }
 
 
@@ -243,19 +847,19 @@ public class HotelData {
      */
 
     String toStringDescription(String hotelId) {
-        Hotel hotel = getHotel(Integer.parseInt(hotelId));
+        int h = Integer.parseInt(hotelId);
+        Hotel hotel = getHotel(h);
         StringBuilder builder = new StringBuilder();
-        Map<String, String> descMap = descriptionsMap.get(Integer.parseInt(hotelId));
-        if (hotel != null && descMap != null) {
+        if (hotel != null && descriptions.contains(h)) {
             builder.append(hotelId);
-            String propertyStr = descMap.get("PropDesc");
-            if (propertyStr.length() > 0) {
+            String propertyStr = descriptions.get(h, DescriptionStore.PROPERTY);
+            if (propertyStr != null && propertyStr.length() > 0) {
                 builder.append(System.lineSeparator());
                 builder.append(propertyStr);
             }
             builder.append(System.lineSeparator());
-            String areaStr = descMap.get("AreaDesc");
-            if (areaStr.length() > 0) {
+            String areaStr = descriptions.get(h, DescriptionStore.AREA);
+            if (areaStr != null && areaStr.length() > 0) {
                 builder.append(System.lineSeparator());
                 builder.append(areaStr);
             }
@@ -271,14 +875,26 @@ public class HotelData {
      * @return String value
      */
     String toStringAttraction(String hotelId) {
-        Hotel hotel = getHotel(Integer.parseInt(hotelId));
+        return toStringAttraction(hotelId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Print string representation of the k best rated attractions of this hotel Id
+     *
+     * @param hotelId id of hotel
+     * @param k       maximum number of attractions
+     * @return String value
+     */
+    String toStringAttraction(String hotelId, int k) {
+        Hotel hotel = lookupHotel(Integer.parseInt(hotelId));
         StringBuilder builder = new StringBuilder();
-        List<TouristAttraction> touristAttractionList = touristAttractionMap.get(Integer.parseInt(hotelId));
-        if (hotel != null && touristAttractionList != null) {
+        int[] handles = touristAttractionMap.get(Integer.parseInt(hotelId));
+        if (hotel != null && handles != null) {
             builder.append("Attractions near ").append(hotelId).append(",").append(" ").append(hotel.getF());
-            for (TouristAttraction attraction : touristAttractionList) {
+            int count = Math.min(Math.max(0, k), handles.length);
+            for (int i = 0; i < count; i++) {
                 builder.append(System.lineSeparator());
-                builder.append(attraction.getName());
+                builder.append(attractionTable.get(handles[i]).getName());
             }
         }
         return builder.toString();
@@ -307,9 +923,17 @@ public class HotelData {
      * @return Hotel
      */
     Hotel getHotel(int hotelId) {
-        Map<Integer, Hotel> map = new HashMap<>();
-        map.putAll(hotelDetailsMap);
-        return map.get(hotelId);
+        return lookupHotel(hotelId);
+    }
+
+    /**
+     * Looks up a hotel in the hotel map or, for columnar hotels, builds it from the hotel store
+     *
+     * @param hotelId id of the hotel
+     * @return Hotel, or null if there is no hotel with the id
+     */
+    private Hotel lookupHotel(int hotelId) {
+        return hotelStore != null ? hotelStore.get(hotelId) : hotelDetailsMap.get(hotelId);
     }
 }
 
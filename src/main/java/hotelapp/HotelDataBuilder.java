@@ -1,13 +1,25 @@
 package hotelapp;
 
-import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -15,9 +27,10 @@ import java.util.Map;
  */
 public class HotelDataBuilder {
     private static final String HOTELS_FLAG = "-hotels";
+    private static final long CHUNKED_FILE_BYTES = 64L * 1024 * 1024;
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
     private ThreadSafeHotelData hdata;
     private int numOfThreads;
-    private Gson gson = new Gson();
 
 
     /**
@@ -44,49 +57,210 @@ public class HotelDataBuilder {
 
     /**
      * Read the json file with information about the hotels and load it into the
-     * appropriate data structure(s).
+     * appropriate data structure(s). The file is walked token by token with a JsonReader, so each
+     * hotel of the "sr" array is parsed once and handed to ThreadSafeHotelData without building
+     * the json tree of the whole file. The file is decoded as UTF-8, like the chunks of split files.
      *
      * @param jsonFilename file name of Hotel json
      */
     public void loadHotelInfo(String jsonFilename) {
-        try (JsonReader jsonReader = new JsonReader(new FileReader(jsonFilename))) {
-            JsonElement jsonElement = new JsonParser().parse(jsonReader).getAsJsonObject();
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            JsonElement hotelElem = jsonObject.getAsJsonObject().get("sr");
-            if (hotelElem.isJsonArray()) {
-                JsonArray hotelElemAsJsonArray = hotelElem.getAsJsonArray();
-                for (JsonElement ht : hotelElemAsJsonArray) {
-                    double lat = 0;
-                    double lng = 0;
-                    JsonObject r = ht.getAsJsonObject();
-                    Hotel hotel = gson.fromJson(r, Hotel.class);
-                    if (r.get("ll").isJsonObject()) {
-                        lat = r.get("ll").getAsJsonObject().get("lat").getAsDouble();
-                        lng = r.get("ll").getAsJsonObject().get("lng").getAsDouble();
+        try (JsonReader jsonReader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(jsonFilename), StandardCharsets.UTF_8)))) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("sr") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        loadHotel(jsonReader);
                     }
-                    hdata.addHotel(hotel.getId(), hotel.getF(), hotel.getCi(), hotel.getPr(), hotel.getAd(), lat, lng);
+                    jsonReader.endArray();
+                } else {
+                    jsonReader.skipValue();
                 }
             }
+            jsonReader.endObject();
         } catch (FileNotFoundException e) {
             System.out.println("File not found" + jsonFilename);
-        } catch (IOException e) {
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             System.out.println("IO Exception occurred while loading hotel data");
         }
     }
 
+    /**
+     * Reads a json array of hotel objects and adds every hotel to ThreadSafeHotelData.
+     *
+     * @param reader reader of a json array with hotels
+     * @throws IOException if the json can not be read
+     */
+    private void loadHotels(Reader reader) throws IOException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                loadHotel(jsonReader);
+            }
+            jsonReader.endArray();
+        }
+    }
 
     /**
-     * This method will process hotel flag passed as command line argument
+     * Reads one hotel object of the "sr" array from the reader and adds it to ThreadSafeHotelData.
+     * Fields the hotel does not need are skipped without being materialized.
+     *
+     * @param jsonReader reader positioned at the start of a hotel object
+     * @throws IOException if the json can not be read
+     */
+    private void loadHotel(JsonReader jsonReader) throws IOException {
+        String id = null;
+        String name = null;
+        String address = null;
+        String city = null;
+        String state = null;
+        double lat = 0;
+        double lng = 0;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "id":
+                    id = jsonReader.nextString();
+                    break;
+                case "f":
+                    name = jsonReader.nextString();
+                    break;
+                case "ad":
+                    address = jsonReader.nextString();
+                    break;
+                case "ci":
+                    city = jsonReader.nextString();
+                    break;
+                case "pr":
+                    state = jsonReader.nextString();
+                    break;
+                case "ll":
+                    if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                        jsonReader.skipValue();
+                        break;
+                    }
+                    jsonReader.beginObject();
+                    while (jsonReader.hasNext()) {
+                        String coordinate = jsonReader.nextName();
+                        if (coordinate.equals("lat")) {
+                            lat = jsonReader.nextDouble();
+                        } else if (coordinate.equals("lng")) {
+                            lng = jsonReader.nextDouble();
+                        } else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endObject();
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        if (id != null) {
+            hdata.addHotel(id, name, city, state, address, lat, lng);
+        }
+    }
+
+
+    /**
+     * This method will process hotel flag passed as command line argument. The hotels flag may point to a
+     * single json file or to a directory of json files; files are loaded in parallel on a work-stealing pool
+     * of numThreads threads, and files larger than CHUNKED_FILE_BYTES are split into chunks that are
+     * parsed in parallel too. Returns once every file has been loaded.
      *
      * @param inputFileDetailsMap map with command line arg details
      */
     void processFiles(Map<String, String> inputFileDetailsMap) {
-        for (String inputKey : inputFileDetailsMap.keySet()) {
-            if (inputKey.equals(HOTELS_FLAG)) {
-                String path = inputFileDetailsMap.get(inputKey);
-                loadHotelInfo(path);
+        String path = inputFileDetailsMap.get(HOTELS_FLAG);
+        if (path == null) {
+            return;
+        }
+        List<Path> files = getHotelFilePaths(Paths.get(path));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, numOfThreads));
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                tasks.add(pool.submit(() -> loadHotelFile(file)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+            hdata.publishSnapshot();
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Loads one hotel json file and prints how long it took. Large files are split into chunks that are
+     * forked as subtasks of the current pool.
+     *
+     * @param file hotel json file
+     */
+    private void loadHotelFile(Path file) {
+        long start = System.nanoTime();
+        try {
+            long size = Files.size(file);
+            if (numOfThreads > 1 && size > CHUNKED_FILE_BYTES && size < Integer.MAX_VALUE) {
+                List<ForkJoinTask<?>> chunkTasks = new ArrayList<>();
+                for (Reader chunk : HotelJsonSplitter.split(file, CHUNK_BYTES)) {
+                    chunkTasks.add(ForkJoinTask.adapt(() -> loadChunk(chunk, file)));
+                }
+                ForkJoinTask.invokeAll(chunkTasks);
+            } else {
+                loadHotelInfo(file.toString());
             }
+        } catch (IOException e) {
+            System.out.println("IO Exception occurred while loading hotel data from " + file);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Loaded " + file + " in " + millis + " ms");
+    }
+
+    /**
+     * Loads the hotels of one chunk of a split file
+     *
+     * @param chunk reader of a json array with hotels
+     * @param file  file the chunk belongs to
+     */
+    private void loadChunk(Reader chunk, Path file) {
+        try {
+            loadHotels(chunk);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            System.out.println("IO Exception occurred while loading hotel data from " + file);
+        }
+    }
+
+    /**
+     * Returns the hotel json files to load: the path itself if it is a file, or the json files of the
+     * directory otherwise
+     *
+     * @param path file or directory passed with the hotels flag
+     * @return list of json files
+     */
+    private List<Path> getHotelFilePaths(Path path) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return files;
+        }
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(path, "*.json")) {
+            for (Path file : filesList) {
+                if (!Files.isDirectory(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("IO Exception occurred while listing hotel files in " + path);
         }
+        return files;
     }
 
     /**
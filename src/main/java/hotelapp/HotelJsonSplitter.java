@@ -0,0 +1,176 @@
+package hotelapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits the "sr" array of a large hotel json file into chunks of whole hotel objects, so that the chunks
+ * can be parsed in parallel. The file is memory mapped and scanned once byte by byte; the scan only tracks
+ * nesting depth and string literals, it does not parse any values.
+ */
+class HotelJsonSplitter {
+    private final MappedByteBuffer buffer;
+    private final int chunkBytes;
+
+    /**
+     * Constructor for HotelJsonSplitter
+     *
+     * @param buffer     mapped content of the hotel json file
+     * @param chunkBytes approximate size of a chunk in bytes
+     */
+    private HotelJsonSplitter(MappedByteBuffer buffer, int chunkBytes) {
+        this.buffer = buffer;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Maps the file and splits its "sr" array into chunks.
+     *
+     * @param file       hotel json file, must be smaller than 2GB
+     * @param chunkBytes approximate size of a chunk in bytes
+     * @return readers, each of them reading a json array with the hotels of one chunk
+     * @throws IOException if the file can not be mapped
+     */
+    static List<Reader> split(Path file, int chunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HotelJsonSplitter(buffer, chunkBytes).split();
+        }
+    }
+
+    /**
+     * Scans the buffer and cuts the "sr" array after the hotel object that completes a chunk.
+     *
+     * @return readers over the chunks, in file order
+     */
+    private List<Reader> split() {
+        List<Reader> chunks = new ArrayList<>();
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int keyStart = -1;
+        int keyEnd = -1;
+        boolean inHotels = false;
+        int chunkStart = -1;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                    keyEnd = i;
+                }
+                continue;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    keyStart = i + 1;
+                    break;
+                case '{':
+                case '[':
+                    if (depth == 1 && b == '[' && isKey(keyStart, keyEnd, "sr")) {
+                        inHotels = true;
+                    } else if (inHotels && depth == 2 && chunkStart < 0) {
+                        chunkStart = i;
+                    }
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    if (inHotels && depth == 2 && chunkStart >= 0 && i + 1 - chunkStart >= chunkBytes) {
+                        chunks.add(reader(chunkStart, i + 1));
+                        chunkStart = -1;
+                    } else if (inHotels && depth == 1) {
+                        if (chunkStart >= 0) {
+                            chunks.add(reader(chunkStart, i));
+                        }
+                        return chunks;
+                    }
+                    break;
+                default:
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks whether the last string literal read is the given key
+     *
+     * @param start start of the literal
+     * @param end   end of the literal (exclusive)
+     * @param key   key to compare with
+     * @return true if the literal equals the key
+     */
+    private boolean isKey(int start, int end, String key) {
+        if (start < 0 || end - start != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (buffer.get(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a reader over a range of the buffer that is wrapped in brackets, so it reads as a json array
+     *
+     * @param start start of the first hotel of the chunk
+     * @param end   end of the chunk (exclusive)
+     * @return reader
+     */
+    private Reader reader(int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start).limit(end);
+        List<InputStream> parts = Arrays.asList(new ByteArrayInputStream(new byte[]{'['}),
+                new ByteBufferInputStream(slice.slice()), new ByteArrayInputStream(new byte[]{']'}));
+        return new InputStreamReader(new SequenceInputStream(Collections.enumeration(parts)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * InputStream reading the remaining bytes of a ByteBuffer
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package hotelapp;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main class for project 1.
  * The main function should take the following 4 command line arguments:
  * -hotels hotelFile -reviews reviewsDirectory
+ * (hotelFile may also be a directory of hotel json files, and -threads n sets the number of loader threads;
+ * -snapshot snapshotFile starts from a binary snapshot of an earlier run, and writes one after a full build;
+ * -port port serves the hotels as JSON over HTTP while the commands are read)
  * <p>
  * and read general information about the hotels from the hotelFile (a JSON file)
  * and read hotel reviews from the json files in reviewsDirectory.
@@ -16,6 +26,17 @@ import java.util.TreeMap;
  */
 public class HotelSearch {
     private static final String HOTELS_FLAG = "-hotels";
+    private static final String THREADS_FLAG = "-threads";
+    private static final String SNAPSHOT_FLAG = "-snapshot";
+    private static final String PORT_FLAG = "-port";
+    private static final String CACHE_DIRECTORY = "cache" + File.separator + "places";
+    private static final long CACHE_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long CACHE_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String COMMANDS = "Enter one of following commands: find <hotelId> or findAttraction <hotelId> [top <k>] "
+            + "or findCityAttractions <city> or findDescriptions <hotelId> or nearby <lat> <lng> <miles> "
+            + "or nearest <lat> <lng> <k> or hotels city <name> [state <code>] or hotels state <code> "
+            + "or search <terms> or suggest <prefix> "
+            + "or batch find <hotelId>... findAttraction <hotelId>... findDescriptions <hotelId>... or exit";
 
     public static void main(String[] args) {
         // If less than 2 args passed ...
@@ -26,28 +47,60 @@ public class HotelSearch {
             Map<String, String> commandLineArgMap = populateCommandLineArgMap(args);
             if (commandLineArgMap.size() > 0) {
                 Scanner scanObj = new Scanner(System.in);
-                ThreadSafeHotelData hotelData = new ThreadSafeHotelData();
-                HotelDataBuilder builder = new HotelDataBuilder(hotelData, 1);
-                builder.processFiles(commandLineArgMap);
+                ThreadSafeHotelData hotelData = new ThreadSafeHotelData(true);
+                String snapshotFile = commandLineArgMap.get(SNAPSHOT_FLAG);
+                long fingerprint = getFingerprint(commandLineArgMap);
+                boolean loaded = snapshotFile != null && loadSnapshot(Paths.get(snapshotFile), hotelData, fingerprint);
                 TouristAttractionFinder finder = new TouristAttractionFinder(hotelData);
-                finder.fetchAttractions(2);
-                finder.processHTMLFiles();
+                if (!loaded) {
+                    HotelDataBuilder builder = new HotelDataBuilder(hotelData, getNumThreads(commandLineArgMap));
+                    builder.processFiles(commandLineArgMap);
+                    try {
+                        finder.setResponseCache(new PlacesResponseCache(Paths.get(CACHE_DIRECTORY), CACHE_TTL_MILLIS, CACHE_MAX_BYTES));
+                    } catch (IOException e) {
+                        System.out.println("Places response cache is not available: " + e);
+                    }
+                    finder.fetchAttractions(2);
+                }
+                DescriptionWatcher watcher = null;
+                try {
+                    watcher = finder.watchHTMLFiles();
+                } catch (IOException e) {
+                    System.out.println("Descriptions will not be refreshed: " + e);
+                }
+                if (!loaded) {
+                    finder.processHTMLFiles();
+                    if (snapshotFile != null) {
+                        try {
+                            hotelData.writeSnapshot(Paths.get(snapshotFile), fingerprint);
+                        } catch (IOException e) {
+                            System.out.println("Exception occurred while writing the snapshot " + snapshotFile + ": " + e);
+                        }
+                    }
+                }
+                HotelServer server = startServer(commandLineArgMap, hotelData);
                 // Taking user command...
-                System.out.println("Enter one of following commands: find <hotelId> or findAttraction <hotelId> or findDescriptions <hotelId> or exit");
+                System.out.println(COMMANDS);
                 String command = scanObj.nextLine();
                 //Iterate till the user presses exit...
                 while (!command.equalsIgnoreCase("exit")) {
                     finder.parseUserInput(command);
-                    System.out.println("Enter one of following commands: find <hotelId> or findAttraction <hotelId> or findDescriptions <hotelId> or exit");
+                    System.out.println(COMMANDS);
                     command = scanObj.nextLine();
                 }
+                if (server != null) {
+                    server.close();
+                }
+                if (watcher != null) {
+                    watcher.close();
+                }
             }
         }
     }
 
     /**
      * This method will populate commandLineArgMap with the key as flag and path as value..
-     * key should be any of these flag { -hotels or -reviews}
+     * key should be any of these flag { -hotels or -threads or -snapshot or -port}
      * @param args command line args value
      * @return map with flags as key and commandLineArg as values
      */
@@ -55,10 +108,94 @@ public class HotelSearch {
         Map<String, String> inputFileDetailsMap = new TreeMap<>();
         // add first flag and its value to map
         if (args[0].equals(HOTELS_FLAG)) {
-            inputFileDetailsMap.put(args[0], args[1]);
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                if (args[i].equals(HOTELS_FLAG) || args[i].equals(THREADS_FLAG) || args[i].equals(SNAPSHOT_FLAG)
+                        || args[i].equals(PORT_FLAG)) {
+                    inputFileDetailsMap.put(args[i], args[i + 1]);
+                }
+            }
         } else {
             System.out.println("Please provide correct input flag in commandLineArg");
         }
         return inputFileDetailsMap;
     }
+
+    /**
+     * Returns the number of threads passed with the -threads flag, or the number of processors
+     * @param commandLineArgMap map with flags as key and commandLineArg as values
+     * @return number of threads used to load the hotels
+     */
+    private static int getNumThreads(Map<String, String> commandLineArgMap) {
+        String threads = commandLineArgMap.get(THREADS_FLAG);
+        try {
+            return threads != null ? Math.max(1, Integer.parseInt(threads)) : Runtime.getRuntime().availableProcessors();
+        } catch (NumberFormatException e) {
+            System.out.println("Please provide valid number of threads");
+            return 1;
+        }
+    }
+
+    /**
+     * Starts the HTTP server on the port passed with the -port flag
+     * @param commandLineArgMap map with flags as key and commandLineArg as values
+     * @param hotelData hotel data to serve
+     * @return server, or null if no port was passed or the server could not be started
+     */
+    private static HotelServer startServer(Map<String, String> commandLineArgMap, ThreadSafeHotelData hotelData) {
+        String port = commandLineArgMap.get(PORT_FLAG);
+        if (port == null) {
+            return null;
+        }
+        try {
+            HotelServer server = new HotelServer(hotelData, Integer.parseInt(port),
+                    2 * Runtime.getRuntime().availableProcessors());
+            System.out.println("Serving hotels on http://localhost:" + server.getPort() + "/hotels");
+            return server;
+        } catch (NumberFormatException e) {
+            System.out.println("Please provide valid port");
+        } catch (IOException e) {
+            System.out.println("Exception occurred while starting the server on port " + port + ": " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Loads the snapshot file if it exists and was built from the current sources
+     * @param snapshotFile snapshot file
+     * @param hotelData hotel data to load into
+     * @param fingerprint fingerprint of the current sources
+     * @return true if the snapshot was loaded
+     */
+    private static boolean loadSnapshot(Path snapshotFile, ThreadSafeHotelData hotelData, long fingerprint) {
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (SnapshotFile.load(snapshotFile, hotelData, fingerprint)) {
+                System.out.println("Loaded snapshot " + snapshotFile + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                return true;
+            }
+            System.out.println("Snapshot " + snapshotFile + " is stale, rebuilding");
+        } catch (IOException e) {
+            System.out.println("Exception occurred while reading the snapshot " + snapshotFile + ": " + e);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the fingerprint of the hotel files and html pages the data is built from
+     * @param commandLineArgMap map with flags as key and commandLineArg as values
+     * @return fingerprint, or 0 if the sources can not be listed
+     */
+    private static long getFingerprint(Map<String, String> commandLineArgMap) {
+        try {
+            return SnapshotFile.fingerprint(Arrays.asList(Paths.get(commandLineArgMap.get(HOTELS_FLAG)),
+                    Paths.get(TouristAttractionFinder.HTML_DIRECTORY)));
+        } catch (IOException e) {
+            System.out.println("Exception occurred while listing the input files: " + e);
+            return 0;
+        }
+    }
 }
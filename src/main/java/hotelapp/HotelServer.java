@@ -0,0 +1,408 @@
+package hotelapp;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP server with JSON endpoints over a ThreadSafeHotelData:
+ * <pre>
+ * GET /hotels?city=&amp;state=&amp;after=&amp;limit=   one page of hotel ids, optionally in a city and/or state
+ * GET /hotels/{id}                             hotel details
+ * GET /hotels/{id}/attractions?top=k           attractions near the hotel, best rated first
+ * GET /hotels/{id}/descriptions                property and area descriptions
+ * GET /hotels/batch?hotels=&amp;attractions=&amp;descriptions=
+ *                                              all of these for comma separated lists of hotel ids,
+ *                                              resolved against one consistent view of the data
+ * </pre>
+ * Requests are handled on a fixed pool of threads. Every response is written field by field with a
+ * JsonWriter straight to the response body, from the objects held by the hotel data, so a request neither
+ * parses anything again nor builds the response as a String. Errors are answered with a status code and
+ * a body of the form {"error": message}.
+ */
+class HotelServer implements AutoCloseable {
+    private static final String HOTELS_PATH = "/hotels";
+    private static final String ATTRACTIONS_PATH = "attractions";
+    private static final String DESCRIPTIONS_PATH = "descriptions";
+    private static final String BATCH_PATH = "batch";
+    private static final String HOTELS_PARAMETER = "hotels";
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int BACKLOG = 1024;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private final ThreadSafeHotelData hotelData;
+    private final HttpServer server;
+    private final ExecutorService pool;
+
+    static {
+        // responses of unknown length end with a small separate write, which otherwise waits for the delayed
+        // ACK of the client (about 40 ms); the property is read when the first server is created
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Constructor for HotelServer; starts serving right away
+     *
+     * @param hotelData  hotel data to serve
+     * @param port       port to listen on, 0 for any free port
+     * @param numThreads number of request handling threads
+     * @throws IOException if the server can not listen on the port
+     */
+    HotelServer(ThreadSafeHotelData hotelData, int port, int numThreads) throws IOException {
+        this.hotelData = hotelData;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        server.createContext(HOTELS_PATH, this::handle);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving; requests being handled get a second to finish
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        pool.shutdownNow();
+    }
+
+    /**
+     * Dispatches a request under /hotels to the endpoint of its path
+     *
+     * @param exchange request and response
+     * @throws IOException if the response can not be written
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring(HOTELS_PATH.length()).split("/");
+            // path[0] is the empty string before the leading slash
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if ((path.length > 0 && !path[0].isEmpty()) || path.length > 3) {
+                sendError(exchange, 404, "Unknown path");
+            } else if (path.length <= 1) {
+                sendHotelPage(exchange, query);
+            } else if (path.length == 2 && path[1].equals(BATCH_PATH)) {
+                sendBatch(exchange, query);
+            } else if (path.length == 2) {
+                sendHotel(exchange, path[1]);
+            } else if (path[2].equals(ATTRACTIONS_PATH)) {
+                sendAttractions(exchange, path[1], query);
+            } else if (path[2].equals(DESCRIPTIONS_PATH)) {
+                sendDescriptions(exchange, path[1]);
+            } else {
+                sendError(exchange, 404, "Unknown path");
+            }
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // thrown by URLDecoder for a malformed escape in the query
+            sendError(exchange, 400, "Invalid query: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendHotelPage(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String after = query.get("after");
+        String limit = query.get("limit");
+        int afterId = after != null ? Integer.parseInt(after) : Integer.MIN_VALUE;
+        int pageSize = limit != null ? Math.min(MAX_PAGE_SIZE, Math.max(1, Integer.parseInt(limit))) : DEFAULT_PAGE_SIZE;
+        List<String> hotelIds = hotelData.getHotelPageByLocation(query.get("city"), query.get("state"), afterId,
+                pageSize);
+        try (JsonWriter writer = startJson(exchange, 200)) {
+            writer.beginObject();
+            writer.name("hotels").beginArray();
+            for (String hotelId : hotelIds) {
+                writer.value(hotelId);
+            }
+            writer.endArray();
+            // the last id of a full page is where the next page starts
+            writer.name("next");
+            if (hotelIds.size() == pageSize) {
+                writer.value(hotelIds.get(hotelIds.size() - 1));
+            } else {
+                writer.nullValue();
+            }
+            writer.endObject();
+        }
+    }
+
+    private void sendHotel(HttpExchange exchange, String hotelId) throws IOException {
+        Hotel hotel = hotelData.getHotel(Integer.parseInt(hotelId));
+        if (hotel == null) {
+            sendError(exchange, 404, "No hotel " + hotelId);
+            return;
+        }
+        try (JsonWriter writer = startJson(exchange, 200)) {
+            writeHotel(writer, hotel);
+        }
+    }
+
+    private void sendAttractions(HttpExchange exchange, String hotelId, Map<String, String> query)
+            throws IOException {
+        int h = Integer.parseInt(hotelId);
+        String top = query.get("top");
+        int k = top != null ? Integer.parseInt(top) : Integer.MAX_VALUE;
+        // the hotel and its attractions are read in one lookup, so a concurrent write can not come between them
+        hotelData.lookup(singleLookup(BatchLookup.Kind.ATTRACTIONS, h), new SinkAdapter() {
+            @Override
+            public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions)
+                    throws IOException {
+                if (hotel == null) {
+                    sendError(exchange, 404, "No hotel " + hotelId);
+                    return;
+                }
+                try (JsonWriter writer = startJson(exchange, 200)) {
+                    writer.beginObject();
+                    writer.name("hotelId").value(String.valueOf(hotelId));
+                    writer.name("attractions").beginArray();
+                    for (int i = 0; i < Math.min(Math.max(0, k), attractions.size()); i++) {
+                        writeAttraction(writer, attractions.get(i));
+                    }
+                    writer.endArray();
+                    writer.endObject();
+                }
+            }
+        });
+    }
+
+    private void sendDescriptions(HttpExchange exchange, String hotelId) throws IOException {
+        // one lookup, so the property and area descriptions always come from the same refresh
+        hotelData.lookup(singleLookup(BatchLookup.Kind.DESCRIPTIONS, Integer.parseInt(hotelId)), new SinkAdapter() {
+            @Override
+            public void descriptions(int hotelId, Hotel hotel, String property, String area) throws IOException {
+                if (hotel == null) {
+                    sendError(exchange, 404, "No hotel " + hotelId);
+                    return;
+                }
+                try (JsonWriter writer = startJson(exchange, 200)) {
+                    writer.beginObject();
+                    writer.name("hotelId").value(String.valueOf(hotelId));
+                    writer.name("property").value(property);
+                    writer.name("area").value(area);
+                    writer.endObject();
+                }
+            }
+        });
+    }
+
+    private void sendBatch(HttpExchange exchange, Map<String, String> query) throws IOException {
+        BatchLookup batch = new BatchLookup();
+        addToBatch(batch, BatchLookup.Kind.HOTEL, query.get(HOTELS_PARAMETER));
+        addToBatch(batch, BatchLookup.Kind.ATTRACTIONS, query.get(ATTRACTIONS_PATH));
+        addToBatch(batch, BatchLookup.Kind.DESCRIPTIONS, query.get(DESCRIPTIONS_PATH));
+        if (batch.size() > MAX_BATCH_SIZE) {
+            sendError(exchange, 400, "At most " + MAX_BATCH_SIZE + " lookups per batch");
+            return;
+        }
+        try (JsonWriter writer = startJson(exchange, 200)) {
+            writer.beginObject();
+            writer.name("results").beginArray();
+            hotelData.lookup(batch, new BatchLookup.Sink() {
+                @Override
+                public void hotel(int hotelId, Hotel hotel) throws IOException {
+                    writer.beginObject();
+                    writer.name("kind").value("hotel");
+                    writer.name("hotelId").value(String.valueOf(hotelId));
+                    writer.name("hotel");
+                    if (hotel != null) {
+                        writeHotel(writer, hotel);
+                    } else {
+                        writer.nullValue();
+                    }
+                    writer.endObject();
+                }
+
+                @Override
+                public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions)
+                        throws IOException {
+                    writer.beginObject();
+                    writer.name("kind").value(ATTRACTIONS_PATH);
+                    writer.name("hotelId").value(String.valueOf(hotelId));
+                    writer.name("attractions");
+                    if (hotel != null) {
+                        writer.beginArray();
+                        for (TouristAttraction attraction : attractions) {
+                            writeAttraction(writer, attraction);
+                        }
+                        writer.endArray();
+                    } else {
+                        writer.nullValue();
+                    }
+                    writer.endObject();
+                }
+
+                @Override
+                public void descriptions(int hotelId, Hotel hotel, String property, String area)
+                        throws IOException {
+                    writer.beginObject();
+                    writer.name("kind").value(DESCRIPTIONS_PATH);
+                    writer.name("hotelId").value(String.valueOf(hotelId));
+                    writer.name("property").value(property);
+                    writer.name("area").value(area);
+                    writer.endObject();
+                }
+            });
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    /**
+     * @param kind    what to look up
+     * @param hotelId id of the hotel
+     * @return batch of the one lookup
+     */
+    private static BatchLookup singleLookup(BatchLookup.Kind kind, int hotelId) {
+        BatchLookup batch = new BatchLookup();
+        batch.add(kind, hotelId);
+        return batch;
+    }
+
+    /**
+     * Adds lookups for a comma separated list of hotel ids to a batch
+     *
+     * @param batch    batch
+     * @param kind     what to look up
+     * @param hotelIds comma separated hotel ids, or null for none
+     */
+    private static void addToBatch(BatchLookup batch, BatchLookup.Kind kind, String hotelIds) {
+        if (hotelIds == null) {
+            return;
+        }
+        for (String hotelId : hotelIds.split(",")) {
+            if (!hotelId.isBlank()) {
+                batch.add(kind, Integer.parseInt(hotelId.trim()));
+            }
+        }
+    }
+
+    /**
+     * Writes the fields of a hotel as a json object
+     *
+     * @param writer json writer
+     * @param hotel  hotel
+     * @throws IOException if the object can not be written
+     */
+    static void writeHotel(JsonWriter writer, Hotel hotel) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(hotel.getId());
+        writer.name("name").value(hotel.getF());
+        writer.name("city").value(hotel.getCi());
+        writer.name("state").value(hotel.getPr());
+        writer.name("address").value(hotel.getAd());
+        writer.name("lat").value(hotel.getLat());
+        writer.name("lng").value(hotel.getLng());
+        writer.endObject();
+    }
+
+    /**
+     * Writes the fields of an attraction as a json object; an unknown location is written as null
+     *
+     * @param writer     json writer
+     * @param attraction attraction
+     * @throws IOException if the object can not be written
+     */
+    static void writeAttraction(JsonWriter writer, TouristAttraction attraction) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(attraction.getId());
+        writer.name("name").value(attraction.getName());
+        writer.name("rating").value(attraction.getRating());
+        writer.name("address").value(attraction.getAddress());
+        if (attraction.hasLocation()) {
+            writer.name("lat").value(attraction.getLat());
+            writer.name("lng").value(attraction.getLng());
+        } else {
+            writer.name("lat").nullValue();
+            writer.name("lng").nullValue();
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Sends the response headers and returns a writer for a json body of unknown length
+     *
+     * @param exchange request and response
+     * @param status   status code
+     * @return json writer over the response body; closing it ends the response
+     * @throws IOException if the headers can not be sent
+     */
+    private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (JsonWriter writer = startJson(exchange, status)) {
+            writer.beginObject();
+            writer.name("error").value(message);
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters; a repeated parameter keeps its last value
+     *
+     * @param rawQuery query string, or null
+     * @return parameter name -> value
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Sink that ignores every result; a single lookup overrides the method of its kind
+     */
+    private abstract static class SinkAdapter implements BatchLookup.Sink {
+        @Override
+        public void hotel(int hotelId, Hotel hotel) throws IOException {
+        }
+
+        @Override
+        public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions) throws IOException {
+        }
+
+        @Override
+        public void descriptions(int hotelId, Hotel hotel, String property, String area) throws IOException {
+        }
+    }
+}
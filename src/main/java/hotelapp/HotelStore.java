@@ -0,0 +1,324 @@
+package hotelapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar table of hotels. Every hotel is a row of parallel primitive columns: id, latitude and longitude,
+ * city and state as codes of a dictionary of the distinct values, and name and street address as UTF-8 bytes
+ * in a shared text column. Hotel objects are only built when a hotel is looked up.
+ * Rows are append-only: adding a hotel again appends a new row and points its id at it, so the columns of
+ * a row never change once written and a copy can share them.
+ * <p>
+ * Scans over all hotels, such as HotelData.printToFile(), go through the row index: the current rows sorted
+ * by id, built by sorting the rows once after the last put. A scan reads the fields of each row from the
+ * columns, without probing the id table or building a Hotel. The city and state filters do not scan: the
+ * id sets HotelData keeps per city and state visit only the matching hotels, and a scan of the city and
+ * state columns would visit every row.
+ */
+class HotelStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final byte NULL_NAME = 1;
+    private static final byte NULL_STREET = 2;
+    private int size;
+    private int[] ids = new int[DEFAULT_CAPACITY];
+    private double[] lats = new double[DEFAULT_CAPACITY];
+    private double[] lngs = new double[DEFAULT_CAPACITY];
+    private int[] cities = new int[DEFAULT_CAPACITY];
+    private int[] states = new int[DEFAULT_CAPACITY];
+    // start of the name and of the street of each row in text; a street ends where the next row starts
+    private int[] nameStarts = new int[DEFAULT_CAPACITY];
+    private int[] streetStarts = new int[DEFAULT_CAPACITY];
+    private byte[] text = new byte[DEFAULT_CAPACITY * 64];
+    // NULL_NAME and NULL_STREET flags of each row, so a null name or street is not read back as ""
+    private byte[] nullFields = new byte[DEFAULT_CAPACITY];
+    private int textSize;
+    private final Dictionary cityDictionary;
+    private final Dictionary stateDictionary;
+    // open addressing table from hotel id to row + 1; 0 marks an empty slot
+    private int[] indexKeys = new int[DEFAULT_CAPACITY * 2];
+    private int[] indexRows = new int[DEFAULT_CAPACITY * 2];
+    private int indexSize;
+    // current rows sorted by id, each as id << 32 | row; null until the first scan after a put
+    private volatile long[] rowIndex;
+
+    /**
+     * Constructor for an empty HotelStore
+     */
+    HotelStore() {
+        cityDictionary = new Dictionary();
+        stateDictionary = new Dictionary();
+    }
+
+    /**
+     * Copy constructor; the copy shares the columns, whose rows never change, and is not affected by later
+     * puts on other
+     *
+     * @param other store to copy
+     */
+    HotelStore(HotelStore other) {
+        size = other.size;
+        ids = other.ids;
+        lats = other.lats;
+        lngs = other.lngs;
+        cities = other.cities;
+        states = other.states;
+        nameStarts = other.nameStarts;
+        streetStarts = other.streetStarts;
+        text = other.text;
+        nullFields = other.nullFields;
+        textSize = other.textSize;
+        cityDictionary = new Dictionary(other.cityDictionary);
+        stateDictionary = new Dictionary(other.stateDictionary);
+        indexKeys = other.indexKeys.clone();
+        indexRows = other.indexRows.clone();
+        indexSize = other.indexSize;
+        rowIndex = other.rowIndex;
+    }
+
+    /**
+     * Adds a hotel, replacing the hotel previously added with the same id
+     *
+     * @param id     hotel id
+     * @param name   hotel name
+     * @param city   city
+     * @param state  state
+     * @param street street address
+     * @param lat    latitude
+     * @param lng    longitude
+     */
+    void put(int id, String name, String city, String state, String street, double lat, double lng) {
+        if (size == ids.length) {
+            // the copies sharing the old columns keep them
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+            cities = Arrays.copyOf(cities, capacity);
+            states = Arrays.copyOf(states, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            streetStarts = Arrays.copyOf(streetStarts, capacity);
+            nullFields = Arrays.copyOf(nullFields, capacity);
+        }
+        int row = size;
+        ids[row] = id;
+        lats[row] = lat;
+        lngs[row] = lng;
+        cities[row] = cityDictionary.encode(city);
+        states[row] = stateDictionary.encode(state);
+        nameStarts[row] = textSize;
+        appendText(name);
+        streetStarts[row] = textSize;
+        appendText(street);
+        nullFields[row] = (byte) ((name == null ? NULL_NAME : 0) | (street == null ? NULL_STREET : 0));
+        size++;
+        index(id, row);
+        rowIndex = null;
+    }
+
+    /**
+     * Builds the Hotel of an id
+     *
+     * @param id hotel id
+     * @return hotel, or null if there is no hotel with the id
+     */
+    Hotel get(int id) {
+        int row = row(id);
+        if (row < 0) {
+            return null;
+        }
+        return new Hotel(String.valueOf(ids[row]), getName(row), getCity(row), getState(row), getStreet(row),
+                lats[row], lngs[row]);
+    }
+
+    /**
+     * Returns the current rows sorted by hotel id, for scans over all hotels. The index is built by sorting
+     * all rows, dropping the rows replaced by a later put of the same id, and is kept until the next put.
+     * Threads racing to build it build equal arrays, so it needs no lock.
+     *
+     * @return entries id << 32 | row in ascending id order; use rowOf() to get the row of an entry
+     */
+    long[] rowIndex() {
+        long[] index = rowIndex;
+        if (index == null) {
+            long[] entries = new long[size];
+            for (int row = 0; row < size; row++) {
+                entries[row] = ((long) ids[row] << 32) | row;
+            }
+            // rows of the same id sort by row, and the last of them is the current one
+            Arrays.sort(entries);
+            int count = 0;
+            for (int i = 0; i < entries.length; i++) {
+                if (i + 1 == entries.length || (entries[i + 1] >> 32) != (entries[i] >> 32)) {
+                    entries[count++] = entries[i];
+                }
+            }
+            index = count == entries.length ? entries : Arrays.copyOf(entries, count);
+            rowIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * @param entry entry of the row index
+     * @return row of the entry
+     */
+    static int rowOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @param row row
+     * @return hotel id of the row
+     */
+    int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row row
+     * @return hotel name of the row
+     */
+    String getName(int row) {
+        return (nullFields[row] & NULL_NAME) != 0 ? null : decode(nameStarts[row], streetStarts[row]);
+    }
+
+    /**
+     * @param row row
+     * @return street address of the row
+     */
+    String getStreet(int row) {
+        int streetEnd = row + 1 < size ? nameStarts[row + 1] : textSize;
+        return (nullFields[row] & NULL_STREET) != 0 ? null : decode(streetStarts[row], streetEnd);
+    }
+
+    /**
+     * @param row row
+     * @return city of the row
+     */
+    String getCity(int row) {
+        return cityDictionary.decode(cities[row]);
+    }
+
+    /**
+     * @param row row
+     * @return state of the row
+     */
+    String getState(int row) {
+        return stateDictionary.decode(states[row]);
+    }
+
+    /**
+     * Appends a string to the text column as UTF-8
+     *
+     * @param s string; null appends nothing, and is told apart from "" by the null flags of the row
+     */
+    private void appendText(String s) {
+        if (s == null || s.isEmpty()) {
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (textSize + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textSize + bytes.length));
+        }
+        System.arraycopy(bytes, 0, text, textSize, bytes.length);
+        textSize += bytes.length;
+    }
+
+    private String decode(int start, int end) {
+        return new String(text, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks up the current row of an id
+     *
+     * @param id hotel id
+     * @return row, or -1 if there is no hotel with the id
+     */
+    private int row(int id) {
+        int mask = indexKeys.length - 1;
+        for (int i = slot(id, mask); indexRows[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == id) {
+                return indexRows[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Points an id at a row, growing the index table when it is more than half full
+     *
+     * @param id  hotel id
+     * @param row row
+     */
+    private void index(int id, int row) {
+        int mask = indexKeys.length - 1;
+        int i = slot(id, mask);
+        for (; indexRows[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == id) {
+                indexRows[i] = row + 1;
+                return;
+            }
+        }
+        indexKeys[i] = id;
+        indexRows[i] = row + 1;
+        if (++indexSize * 2 > indexKeys.length) {
+            int[] oldKeys = indexKeys;
+            int[] oldRows = indexRows;
+            indexKeys = new int[oldKeys.length * 2];
+            indexRows = new int[oldKeys.length * 2];
+            mask = indexKeys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldRows[j] != 0) {
+                    int k = slot(oldKeys[j], mask);
+                    while (indexRows[k] != 0) {
+                        k = (k + 1) & mask;
+                    }
+                    indexKeys[k] = oldKeys[j];
+                    indexRows[k] = oldRows[j];
+                }
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Dictionary of the distinct values of a column; each value is stored once and referenced by its code
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes;
+        private final List<String> values;
+
+        Dictionary() {
+            codes = new HashMap<>();
+            values = new ArrayList<>();
+        }
+
+        Dictionary(Dictionary other) {
+            codes = new HashMap<>(other.codes);
+            values = new ArrayList<>(other.values);
+        }
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package hotelapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scrapes the "About this area" and "About this property" descriptions from an Expedia hotel page.
+ * The page is memory mapped and scanned forward once; only the bytes of the extracted texts are decoded,
+ * and the scan stops as soon as both sections are found.
+ * For each section the text of the first h4 element after the section title and the text of the first
+ * p element after that are extracted, with line breaks removed.
+ */
+class HtmlDescriptionScraper {
+    static final String AREA_DESC = "AreaDesc";
+    static final String PROPERTY_DESC = "PropDesc";
+    private static final byte[] SECTION_PREFIX = bytes("About this ");
+    private static final byte[] AREA = bytes("area");
+    private static final byte[] PROPERTY = bytes("property");
+    private static final byte[] H4 = bytes("<h4");
+    private static final byte[] P = bytes("<p");
+    private final MappedByteBuffer page;
+
+    private HtmlDescriptionScraper(MappedByteBuffer page) {
+        this.page = page;
+    }
+
+    /**
+     * Scrapes the descriptions of a hotel page
+     *
+     * @param file html page
+     * @return map with the area description under AREA_DESC and the property description under
+     * PROPERTY_DESC; a section that is not found is an empty string
+     * @throws IOException if the file can not be mapped
+     */
+    static Map<String, String> scrape(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new HtmlDescriptionScraper(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).scrape();
+        }
+    }
+
+    /**
+     * Scans the page for the section titles and extracts each section the first time its title is
+     * followed by an h4 and a p element
+     *
+     * @return map with the descriptions
+     */
+    private Map<String, String> scrape() {
+        String area = null;
+        String property = null;
+        for (int i = indexOf(SECTION_PREFIX, 0); i >= 0 && (area == null || property == null);
+             i = indexOf(SECTION_PREFIX, i + 1)) {
+            int titleEnd = i + SECTION_PREFIX.length;
+            if (area == null && startsWith(AREA, titleEnd)) {
+                area = extract(titleEnd + AREA.length);
+            } else if (property == null && startsWith(PROPERTY, titleEnd)) {
+                property = extract(titleEnd + PROPERTY.length);
+            }
+        }
+        Map<String, String> descMap = new HashMap<>();
+        descMap.put(AREA_DESC, area != null ? area : "");
+        descMap.put(PROPERTY_DESC, property != null ? property : "");
+        return descMap;
+    }
+
+    /**
+     * Extracts the texts of the first h4 element after the section title (at least one byte after it)
+     * and of the first p element after that
+     *
+     * @param titleEnd position right after the section title
+     * @return heading and paragraph separated by a line separator, or null if the elements are missing
+     */
+    private String extract(int titleEnd) {
+        int h4 = indexOf(H4, titleEnd + 1);
+        int headingStart = h4 < 0 ? -1 : indexOf('>', h4 + H4.length) + 1;
+        int headingEnd = headingStart <= 0 ? -1 : indexOf('<', headingStart);
+        int p = headingEnd < 0 ? -1 : indexOf(P, headingEnd);
+        int paragraphStart = p < 0 ? -1 : indexOf('>', p + P.length) + 1;
+        int paragraphEnd = paragraphStart <= 0 ? -1 : indexOf('<', paragraphStart);
+        if (paragraphEnd < 0) {
+            return null;
+        }
+        return decode(headingStart, headingEnd) + System.lineSeparator() + decode(paragraphStart, paragraphEnd);
+    }
+
+    /**
+     * Decodes a range of the page as UTF-8, leaving out line breaks
+     *
+     * @param start start of the range
+     * @param end   end of the range (exclusive)
+     * @return text
+     */
+    private String decode(int start, int end) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream(end - start);
+        for (int i = start; i < end; i++) {
+            byte b = page.get(i);
+            if (b != '\n' && b != '\r') {
+                text.write(b);
+            }
+        }
+        return text.toString(StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(byte[] pattern, int from) {
+        if (from + pattern.length > page.limit()) {
+            return false;
+        }
+        for (int j = 0; j < pattern.length; j++) {
+            if (page.get(from + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from) {
+        int last = page.limit() - pattern.length;
+        for (int i = Math.max(0, from); i <= last; i++) {
+            if (page.get(i) == pattern[0] && startsWith(pattern, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = Math.max(0, from); i < page.limit(); i++) {
+            if (page.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,152 @@
+package hotelapp;
+
+/**
+ * Map with primitive int keys, backed by open addressing with linear probing.
+ * Keys are never boxed, so get and put run in constant time without allocating.
+ * Null values are not allowed; a null slot marks an empty slot.
+ *
+ * @param <V> type of the values
+ */
+class IntMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    /**
+     * Constructor for an empty IntMap
+     */
+    IntMap() {
+        keys = new int[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+        threshold = (int) (DEFAULT_CAPACITY * LOAD_FACTOR);
+    }
+
+    /**
+     * Copy constructor; the copy shares the values but not the table with other
+     *
+     * @param other map to copy
+     */
+    IntMap(IntMap<V> other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+        threshold = other.threshold;
+    }
+
+    /**
+     * Returns the value stored for the key
+     *
+     * @param key key
+     * @return value, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a value is stored for the key
+     *
+     * @param key key
+     * @return true if the key is present
+     */
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores the value for the key, replacing the previous value
+     *
+     * @param key   key
+     * @param value value, not null
+     * @return previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntMap does not allow null values");
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * @return number of keys in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the keys of the map, in no particular order
+     *
+     * @return new array with the keys
+     */
+    int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Doubles the table and reinserts every entry
+     */
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int capacity = oldKeys.length * 2;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the home slot of the key; the key is scrambled so that sequential ids spread over the table
+     *
+     * @param key  key
+     * @param mask table length - 1
+     * @return slot index
+     */
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
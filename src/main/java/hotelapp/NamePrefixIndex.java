@@ -0,0 +1,114 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Sorted index of hotel names for prefix lookups. Names are normalized to lower case and kept in a TreeMap,
+ * so the names starting with a prefix are a contiguous range found in O(log n) and read in alphabetical
+ * order until enough hotels were found. Hotels with the same name share an entry holding their ids in
+ * ascending order; entries are never changed in place, so a copy can share them.
+ */
+class NamePrefixIndex {
+    private final TreeMap<String, int[]> names;
+
+    /**
+     * Constructor for an empty NamePrefixIndex
+     */
+    NamePrefixIndex() {
+        names = new TreeMap<>();
+    }
+
+    /**
+     * Copy constructor; the copy is not affected by later changes of other
+     *
+     * @param other index to copy
+     */
+    NamePrefixIndex(NamePrefixIndex other) {
+        names = new TreeMap<>(other.names);
+    }
+
+    /**
+     * Adds the name of a hotel
+     *
+     * @param name    hotel name
+     * @param hotelId hotel id
+     */
+    void add(String name, int hotelId) {
+        String key = normalize(name);
+        int[] ids = names.get(key);
+        if (ids == null) {
+            names.put(key, new int[]{hotelId});
+            return;
+        }
+        int i = Arrays.binarySearch(ids, hotelId);
+        if (i < 0) {
+            int[] updated = new int[ids.length + 1];
+            int at = -i - 1;
+            System.arraycopy(ids, 0, updated, 0, at);
+            updated[at] = hotelId;
+            System.arraycopy(ids, at, updated, at + 1, ids.length - at);
+            names.put(key, updated);
+        }
+    }
+
+    /**
+     * Removes the name of a hotel, when the hotel is renamed
+     *
+     * @param name    previous hotel name
+     * @param hotelId hotel id
+     */
+    void remove(String name, int hotelId) {
+        String key = normalize(name);
+        int[] ids = names.get(key);
+        int i = ids != null ? Arrays.binarySearch(ids, hotelId) : -1;
+        if (i < 0) {
+            return;
+        }
+        if (ids.length == 1) {
+            names.remove(key);
+            return;
+        }
+        int[] updated = new int[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, i);
+        System.arraycopy(ids, i + 1, updated, i, ids.length - i - 1);
+        names.put(key, updated);
+    }
+
+    /**
+     * Finds the hotels whose names start with a prefix, ignoring case
+     *
+     * @param prefix prefix of the name
+     * @param n      maximum number of hotels to return
+     * @return ids of the hotels in alphabetical order of their names, and ascending id for equal names
+     */
+    List<Integer> findByPrefix(String prefix, int n) {
+        List<Integer> hotelIds = new ArrayList<>();
+        String key = normalize(prefix);
+        if (n <= 0) {
+            return hotelIds;
+        }
+        NavigableMap<String, int[]> range = key.isEmpty() ? names : names.tailMap(key, true);
+        for (Map.Entry<String, int[]> entry : range.entrySet()) {
+            if (!entry.getKey().startsWith(key)) {
+                break;
+            }
+            for (int hotelId : entry.getValue()) {
+                hotelIds.add(hotelId);
+                if (hotelIds.size() == n) {
+                    return hotelIds;
+                }
+            }
+        }
+        return hotelIds;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,372 @@
+package hotelapp;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Minimal HTTP/1.1 client for the Places API. Connections are kept alive and reused from a pool, and
+ * response bodies are framed by Content-Length or chunked transfer encoding by counting bytes, so a
+ * body can be streamed straight into the json parser without reading it into a String. TLS sockets check
+ * that the certificate of the server matches the host name.
+ */
+class PlacesHttpClient implements AutoCloseable {
+    private static final String CRLF = "\r\n";
+    private final String host;
+    private final int port;
+    private final SSLSocketFactory socketFactory;
+    private final int maxIdleConnections;
+    private final Deque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Handles the body of a response
+     */
+    interface BodyHandler {
+        /**
+         * @param body stream that ends at the end of the response body
+         * @throws IOException if the body can not be read
+         */
+        void handle(InputStream body) throws IOException;
+    }
+
+    /**
+     * Constructor for PlacesHttpClient
+     *
+     * @param host               host of the server
+     * @param port               port of the server
+     * @param socketFactory      factory for the TLS sockets
+     * @param maxIdleConnections maximum number of idle connections kept open
+     */
+    PlacesHttpClient(String host, int port, SSLSocketFactory socketFactory, int maxIdleConnections) {
+        this.host = host;
+        this.port = port;
+        this.socketFactory = socketFactory;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Sends a GET request and passes the body of the response to the handler. The connection goes back to
+     * the pool afterwards unless the server asked to close it. A request on a reused connection that fails
+     * or reaches the end of the stream before any response arrives (the server may have closed an idle
+     * connection) is retried once on a new connection.
+     *
+     * @param pathResourceQuery path and query of the request
+     * @param handler           handler of the response body
+     * @throws IOException if the request fails or the response status is not 200
+     */
+    void get(String pathResourceQuery, BodyHandler handler) throws IOException {
+        Connection connection = idleConnections.pollFirst();
+        boolean reused = connection != null;
+        if (connection == null) {
+            connection = new Connection(openSocket());
+        }
+        String statusLine;
+        try {
+            connection.send(pathResourceQuery);
+            statusLine = connection.readLine();
+        } catch (IOException e) {
+            if (!reused) {
+                connection.close();
+                throw e;
+            }
+            statusLine = null;
+        }
+        if (statusLine == null && reused) {
+            // a server closing an idle connection usually shows up as end of stream, not as an exception
+            connection.close();
+            connection = new Connection(openSocket());
+            try {
+                connection.send(pathResourceQuery);
+                statusLine = connection.readLine();
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+        }
+        try {
+            if (statusLine == null) {
+                throw new IOException("Connection closed before the response");
+            }
+            InputStream body = connection.readHeaders(statusLine);
+            if (!statusLine.startsWith("HTTP/1.1 200") && !statusLine.startsWith("HTTP/1.0 200")) {
+                drain(body);
+                throw new IOException("Unexpected response: " + statusLine);
+            }
+            handler.handle(body);
+            drain(body);
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        if (connection.keepAlive && idleConnections.size() < maxIdleConnections) {
+            idleConnections.addFirst(connection);
+        } else {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes all idle connections
+     */
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Opens a socket to the server. The socket factory does not verify the host name by itself, so a TLS
+     * socket is told to check it against the certificate during the handshake.
+     *
+     * @return connected socket
+     * @throws IOException if the socket can not be connected
+     */
+    private Socket openSocket() throws IOException {
+        Socket socket = socketFactory.createSocket(host, port);
+        if (socket instanceof SSLSocket) {
+            SSLSocket sslSocket = (SSLSocket) socket;
+            SSLParameters parameters = sslSocket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslSocket.setSSLParameters(parameters);
+        }
+        return socket;
+    }
+
+    /**
+     * Reads the rest of a body so that the next response on the connection starts at the right byte
+     *
+     * @param body body stream
+     * @throws IOException if the body can not be read
+     */
+    private static void drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) >= 0) {
+            // discard
+        }
+    }
+
+    /**
+     * One keep-alive connection to the server
+     */
+    private class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private boolean keepAlive;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 16384);
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        /**
+         * Sends a GET request
+         *
+         * @param pathResourceQuery path and query of the request
+         * @throws IOException if the request can not be written
+         */
+        void send(String pathResourceQuery) throws IOException {
+            String request = "GET " + pathResourceQuery + " HTTP/1.1" + CRLF
+                    + "Host: " + host + CRLF
+                    + "Connection: keep-alive" + CRLF
+                    + "Accept-Encoding: identity" + CRLF
+                    + CRLF;
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        /**
+         * Reads the headers of the response and returns a stream over its body, framed by the headers.
+         * An HTTP/1.1 connection stays open unless the server sends Connection: close, an HTTP/1.0 one
+         * only if it sends Connection: keep-alive.
+         *
+         * @param statusLine status line of the response
+         * @return body stream
+         * @throws IOException if the headers can not be read
+         */
+        InputStream readHeaders(String statusLine) throws IOException {
+            long contentLength = -1;
+            boolean chunked = false;
+            keepAlive = statusLine.startsWith("HTTP/1.1");
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+                if (name.equals("content-length")) {
+                    contentLength = Long.parseLong(value);
+                } else if (name.equals("transfer-encoding")) {
+                    chunked = value.contains("chunked");
+                } else if (name.equals("connection")) {
+                    if (value.contains("close")) {
+                        keepAlive = false;
+                    } else if (value.contains("keep-alive")) {
+                        keepAlive = true;
+                    }
+                }
+            }
+            if (line == null) {
+                throw new IOException("Connection closed in the response headers");
+            }
+            if (chunked) {
+                return new ChunkedInputStream();
+            }
+            if (contentLength >= 0) {
+                return new LengthInputStream(contentLength);
+            }
+            // no framing: the body ends when the server closes the connection
+            keepAlive = false;
+            return in;
+        }
+
+        /**
+         * Reads a line terminated by CRLF (or LF) byte by byte
+         *
+         * @return line without the terminator, or null at the end of the stream
+         * @throws IOException if the stream can not be read
+         */
+        String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    return line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.ISO_8859_1);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("An exception occured while trying to close the socket: " + e);
+            }
+        }
+
+        /**
+         * Body stream that ends after Content-Length bytes
+         */
+        private class LengthInputStream extends InputStream {
+            private long remaining;
+
+            LengthInputStream(long length) {
+                this.remaining = length;
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Connection closed in the response body");
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) {
+                    throw new IOException("Connection closed in the response body");
+                }
+                remaining -= n;
+                return n;
+            }
+        }
+
+        /**
+         * Body stream that decodes chunked transfer encoding
+         */
+        private class ChunkedInputStream extends InputStream {
+            private long remaining;
+            private boolean done;
+
+            @Override
+            public int read() throws IOException {
+                if (!nextChunk()) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Connection closed in the response body");
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (!nextChunk()) {
+                    return -1;
+                }
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) {
+                    throw new IOException("Connection closed in the response body");
+                }
+                remaining -= n;
+                return n;
+            }
+
+            /**
+             * Moves to the next chunk once the current one is used up
+             *
+             * @return false after the last chunk
+             * @throws IOException if the chunk header can not be read
+             */
+            private boolean nextChunk() throws IOException {
+                if (done) {
+                    return false;
+                }
+                if (remaining > 0) {
+                    return true;
+                }
+                String sizeLine = readLine();
+                if (sizeLine != null && sizeLine.isEmpty()) {
+                    // CRLF that ends the previous chunk
+                    sizeLine = readLine();
+                }
+                if (sizeLine == null) {
+                    throw new IOException("Connection closed in the response body");
+                }
+                int extension = sizeLine.indexOf(';');
+                remaining = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                if (remaining == 0) {
+                    String trailer;
+                    while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                        // skip trailers
+                    }
+                    done = true;
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of Places API responses. Each response body is stored in its own file, named after
+ * a hash of the request key. Entries expire after a time to live, and the least recently used entries
+ * are evicted when the cache grows over its maximum size. A response is written to a temporary file,
+ * synced and then atomically renamed, so a crash never leaves a partial entry behind.
+ * Only complete answers are stored: Places reports errors such as OVER_QUERY_LIMIT or REQUEST_DENIED with
+ * HTTP status 200 and a "status" field, and caching those would serve the error for the whole time to live.
+ */
+class PlacesResponseCache {
+    private static final String SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String STATUS_OK = "OK";
+    private static final String STATUS_ZERO_RESULTS = "ZERO_RESULTS";
+    private final Path directory;
+    private final long timeToLiveMillis;
+    private final long maxBytes;
+    // file name -> size in bytes, in least recently used first order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor for PlacesResponseCache; indexes the entries already on disk, least recently written first
+     *
+     * @param directory        directory of the cache files
+     * @param timeToLiveMillis time after which an entry expires
+     * @param maxBytes         maximum total size of the entries
+     * @throws IOException if the directory can not be created or listed
+     */
+    PlacesResponseCache(Path directory, long timeToLiveMillis, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(directory)) {
+            for (Path file : filesList) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    // left over by a crash during a write
+                    Files.deleteIfExists(file);
+                } else if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        for (Path file : files) {
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        evict();
+    }
+
+    /**
+     * Builds the key of a request for attractions near a hotel
+     *
+     * @param city          city of the hotel
+     * @param lat           latitude of the hotel
+     * @param lng           longitude of the hotel
+     * @param radiusInMiles radius in miles
+     * @return cache key
+     */
+    static String key(String city, double lat, double lng, int radiusInMiles) {
+        return city + "|" + lat + "|" + lng + "|" + radiusInMiles;
+    }
+
+    /**
+     * Checks whether a response with the given Places status is a complete answer that may be cached
+     *
+     * @param status value of the "status" field of the response, or null if it has none
+     * @return true for OK and ZERO_RESULTS
+     */
+    static boolean isCacheable(String status) {
+        return STATUS_OK.equals(status) || STATUS_ZERO_RESULTS.equals(status);
+    }
+
+    /**
+     * Returns the file with the cached response for the key
+     *
+     * @param key request key
+     * @return file with the response body, or null if there is no entry or it expired
+     */
+    synchronized Path get(String key) {
+        String fileName = fileName(key);
+        Path file = directory.resolve(fileName);
+        if (entries.get(fileName) != null) {
+            if (System.currentTimeMillis() - lastModified(file).toMillis() <= timeToLiveMillis) {
+                hits++;
+                return file;
+            }
+            remove(fileName);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores a response body for the key, replacing the previous entry, and evicts the least recently
+     * used entries if the cache is over its size. Only call this for responses whose status isCacheable().
+     *
+     * @param key  request key
+     * @param body stream of the response body; read to its end
+     * @return file with the stored response body
+     * @throws IOException if the body can not be read or stored
+     */
+    Path put(String key, InputStream body) throws IOException {
+        String fileName = fileName(key);
+        Path temp = Files.createTempFile(directory, "places", TEMP_SUFFIX);
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            size = body.transferTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Path file = directory.resolve(fileName);
+        synchronized (this) {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Long previous = entries.put(fileName, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict();
+        }
+        return file;
+    }
+
+    /**
+     * @return hit, miss and eviction counts of the cache
+     */
+    synchronized String getStats() {
+        return "Places cache: hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                + " entries=" + entries.size() + " bytes=" + totalBytes;
+    }
+
+    /**
+     * Removes least recently used entries until the cache is within its size
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions++;
+            deleteFile(eldest.getKey());
+        }
+    }
+
+    /**
+     * Removes an entry and its file
+     *
+     * @param fileName file name of the entry
+     */
+    private void remove(String fileName) {
+        Long size = entries.remove(fileName);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteFile(fileName);
+    }
+
+    private void deleteFile(String fileName) {
+        try {
+            Files.deleteIfExists(directory.resolve(fileName));
+        } catch (IOException e) {
+            System.out.println("IO Exception occurred while deleting cache file " + fileName);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Hashes the key into a file name, so any key maps to a valid and fixed length file name
+     *
+     * @param key request key
+     * @return file name
+     */
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package hotelapp;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache of rendered hotel, attraction and description views, with a W-TinyLFU style policy:
+ * new views enter a small window, and a view evicted from the window is only admitted to the main region
+ * if it has been requested more often than the main region's eviction victim. Request frequencies
+ * are estimated with a count-min sketch of small counters (capped at 15) that are halved periodically,
+ * so the cache keeps popular hotels and adapts when popularity shifts.
+ * Every invalidation moves the cache to a new epoch, and a view rendered in an older epoch is not stored,
+ * so a view rendered from data that changed while it was being rendered never gets into the cache.
+ * <p>
+ * A hit takes no lock: the views are in a ConcurrentHashMap, and instead of moving a view to the back of
+ * its region, a hit only sets the referenced flag of the view. Both regions evict in CLOCK order: a view
+ * at the front whose flag is set gets its flag cleared and a second chance at the back, so the eviction
+ * order approximates LRU. The flags and the sketch counters are updated without synchronization, so
+ * concurrent requests may lose updates; both are estimates anyway. Only put() and invalidate(), which
+ * change the regions, lock the cache.
+ */
+class RenderCache {
+    static final int HOTEL_VIEW = 0;
+    static final int ATTRACTION_VIEW = 1;
+    static final int DESCRIPTION_VIEW = 2;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private final int windowSize;
+    private final int mainSize;
+    private final ConcurrentHashMap<Long, Entry> views = new ConcurrentHashMap<>();
+    // keys of the views in each region, oldest first; only used while holding the lock of the cache
+    private final LinkedHashSet<Long> window = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> main = new LinkedHashSet<>();
+    private final byte[][] sketch;
+    private final int sketchMask;
+    private final int sampleSize;
+    private int samples;
+    private volatile long epoch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Cached view with its CLOCK reference flag
+     */
+    private static final class Entry {
+        private final String view;
+        private boolean referenced;
+
+        private Entry(String view) {
+            this.view = view;
+        }
+    }
+
+    /**
+     * Constructor for RenderCache
+     *
+     * @param maximumSize maximum number of views in the cache
+     */
+    RenderCache(int maximumSize) {
+        windowSize = Math.max(1, maximumSize / 100);
+        mainSize = Math.max(1, maximumSize - windowSize);
+        int width = Integer.highestOneBit(Math.max(16, maximumSize) * 2);
+        sketch = new byte[SKETCH_DEPTH][width];
+        sketchMask = width - 1;
+        sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    /**
+     * Builds the key of a view
+     *
+     * @param kind    HOTEL_VIEW, ATTRACTION_VIEW or DESCRIPTION_VIEW
+     * @param hotelId hotel id
+     * @return key
+     */
+    static long key(int kind, int hotelId) {
+        return ((long) kind << 32) | (hotelId & 0xffffffffL);
+    }
+
+    /**
+     * Returns the cached view and counts the request
+     *
+     * @param key key of the view
+     * @return view, or null if it is not cached
+     */
+    String get(long key) {
+        increment(key);
+        Entry entry = views.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // only written when it changes, so hits on a popular view do not keep writing its cache line
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.view;
+    }
+
+    /**
+     * @return current epoch; read it before reading the data a view is rendered from
+     */
+    long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Stores a view rendered in the given epoch, unless the cache has been invalidated since
+     *
+     * @param key         key of the view
+     * @param view        rendered view
+     * @param renderEpoch epoch read before the data was read
+     */
+    synchronized void put(long key, String view, long renderEpoch) {
+        if (renderEpoch != epoch || views.containsKey(key)) {
+            return;
+        }
+        views.put(key, new Entry(view));
+        window.add(key);
+        if (window.size() <= windowSize) {
+            return;
+        }
+        Long candidate = nextVictim(window);
+        window.remove(candidate);
+        if (main.size() < mainSize) {
+            main.add(candidate);
+            return;
+        }
+        Long victim = nextVictim(main);
+        if (frequency(candidate) > frequency(victim)) {
+            main.remove(victim);
+            views.remove(victim);
+            main.add(candidate);
+        } else {
+            views.remove(candidate);
+        }
+    }
+
+    /**
+     * Finds the next view to evict from a region in CLOCK order, moving the views with the referenced flag
+     * set from the front to the back. Gives up after one pass over the region, in case concurrent hits
+     * keep setting the flags.
+     *
+     * @param region window or main region, not empty
+     * @return key of the view at the front of the region
+     */
+    private Long nextVictim(LinkedHashSet<Long> region) {
+        for (int chances = region.size(); ; chances--) {
+            Iterator<Long> iterator = region.iterator();
+            Long key = iterator.next();
+            Entry entry = views.get(key);
+            if (!entry.referenced || chances == 0) {
+                return key;
+            }
+            entry.referenced = false;
+            iterator.remove();
+            region.add(key);
+        }
+    }
+
+    /**
+     * Removes the views of a hotel
+     *
+     * @param hotelId hotel id
+     * @param kinds   kinds of views to remove
+     */
+    synchronized void invalidate(int hotelId, int... kinds) {
+        epoch++;
+        for (int kind : kinds) {
+            long key = key(kind, hotelId);
+            views.remove(key);
+            window.remove(key);
+            main.remove(key);
+        }
+    }
+
+    /**
+     * @return hit ratio and counts of the cache
+     */
+    String getStats() {
+        long hits = this.hits.sum();
+        long requests = hits + misses.sum();
+        double hitRatio = requests == 0 ? 0 : (double) hits / requests;
+        return "Render cache: hits=" + hits + " misses=" + (requests - hits) + " hitRatio="
+                + String.format("%.3f", hitRatio) + " size=" + views.size();
+    }
+
+    /**
+     * Counts a request of the key in the sketch, halving all counters once sampleSize requests were counted.
+     * Called without a lock: racing calls may lose an increment or halve twice, which only blurs the estimates.
+     *
+     * @param key key of the view
+     */
+    private void increment(long key) {
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            byte[] counters = sketch[row];
+            int index = index(key, row);
+            if (counters[index] < MAX_FREQUENCY) {
+                counters[index]++;
+            }
+        }
+        if (++samples >= sampleSize) {
+            samples = 0;
+            for (byte[] counters : sketch) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key key of the view
+     * @return estimated number of recent requests of the key
+     */
+    private int frequency(long key) {
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            frequency = Math.min(frequency, sketch[row][index(key, row)]);
+        }
+        return frequency;
+    }
+
+    private int index(long key, int row) {
+        long h = (key ^ (row * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32)) & sketchMask;
+    }
+}
@@ -0,0 +1,219 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a report with one record per hotel. The hotel ids are read one page at a time, each page is rendered
+ * and encoded as one chunk in parallel with the others, and the encoded chunks are written to a FileChannel in
+ * id order. At most a fixed number of chunks is in flight and the full list of ids is never built, so memory
+ * use does not grow with the number of hotels. A report over a numbered sequence of records, such as the row
+ * index of a HotelStore, is cut into chunks of consecutive record numbers the same way.
+ */
+class ReportWriter {
+    private static final int CHUNK_HOTELS = 512;
+
+    /**
+     * Renders the record of a hotel
+     */
+    interface Renderer {
+        /**
+         * @param hotelId id of the hotel
+         * @param out     builder the record is appended to; nothing is appended to leave the hotel out
+         */
+        void render(String hotelId, StringBuilder out);
+    }
+
+    /**
+     * Renders a record of a numbered sequence
+     */
+    interface RecordRenderer {
+        /**
+         * @param record number of the record, from 0
+         * @param out    builder the record is appended to; nothing is appended to leave the record out
+         */
+        void render(int record, StringBuilder out);
+    }
+
+    /**
+     * Supplies the hotel ids of a report one page at a time, like HotelData.getHotelPage()
+     */
+    interface IdPages {
+        /**
+         * @param afterId  the page starts with the first id greater than afterId; Integer.MIN_VALUE for the first page
+         * @param pageSize maximum number of ids in the page
+         * @return ids of the page, sorted in ascending numeric order; empty after the last page
+         */
+        List<String> page(int afterId, int pageSize);
+    }
+
+    /**
+     * Supplies the chunks of a report in report order; only called from the writing thread
+     */
+    private interface Chunks {
+        /**
+         * @param charset charset of the report
+         * @return task that renders and encodes the next chunk, or null after the last chunk
+         */
+        Callable<ByteBuffer> next(Charset charset);
+    }
+
+    private ReportWriter() {
+    }
+
+    /**
+     * Writes a report, replacing the file, with as many rendering threads as there are processors
+     *
+     * @param filename report file
+     * @param hotelIds pages of the ids of the hotels in report order; read on the calling thread
+     * @param renderer renderer of a record; called from several threads at once
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path filename, IdPages hotelIds, Renderer renderer) throws IOException {
+        write(filename, hotelIds, renderer, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes a report, replacing the file
+     *
+     * @param filename   report file
+     * @param hotelIds   pages of the ids of the hotels in report order; read on the calling thread
+     * @param renderer   renderer of a record; called from several threads at once
+     * @param numThreads number of rendering threads
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path filename, IdPages hotelIds, Renderer renderer, int numThreads) throws IOException {
+        write(filename, new Chunks() {
+            private int afterId = Integer.MIN_VALUE;
+            private boolean done;
+
+            @Override
+            public Callable<ByteBuffer> next(Charset charset) {
+                List<String> chunk = done ? List.of() : hotelIds.page(afterId, CHUNK_HOTELS);
+                if (chunk.isEmpty()) {
+                    return null;
+                }
+                done = chunk.size() < CHUNK_HOTELS;
+                afterId = Integer.parseInt(chunk.get(chunk.size() - 1));
+                return () -> render(chunk, renderer, charset);
+            }
+        }, numThreads);
+    }
+
+    /**
+     * Writes a report of a numbered sequence of records, replacing the file, with as many rendering threads as
+     * there are processors
+     *
+     * @param filename report file
+     * @param records  number of records
+     * @param renderer renderer of a record; called from several threads at once
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path filename, int records, RecordRenderer renderer) throws IOException {
+        write(filename, records, renderer, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes a report of a numbered sequence of records, replacing the file
+     *
+     * @param filename   report file
+     * @param records    number of records
+     * @param renderer   renderer of a record; called from several threads at once
+     * @param numThreads number of rendering threads
+     * @throws IOException if the file can not be written
+     */
+    static void write(Path filename, int records, RecordRenderer renderer, int numThreads) throws IOException {
+        write(filename, new Chunks() {
+            private int from;
+
+            @Override
+            public Callable<ByteBuffer> next(Charset charset) {
+                if (from >= records) {
+                    return null;
+                }
+                int start = from;
+                int end = Math.min(records, start + CHUNK_HOTELS);
+                from = end;
+                return () -> {
+                    StringBuilder out = new StringBuilder((end - start) * 256);
+                    for (int record = start; record < end; record++) {
+                        renderer.render(record, out);
+                    }
+                    return charset.encode(CharBuffer.wrap(out));
+                };
+            }
+        }, numThreads);
+    }
+
+    /**
+     * Renders the chunks on a pool of threads and writes them to the file in order
+     *
+     * @param filename   report file
+     * @param chunks     chunks of the report
+     * @param numThreads number of rendering threads
+     * @throws IOException if the file can not be written
+     */
+    private static void write(Path filename, Chunks chunks, int numThreads) throws IOException {
+        int threads = Math.max(1, numThreads);
+        int maxInFlight = 2 * threads;
+        Charset charset = Charset.defaultCharset();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(filename, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+            Callable<ByteBuffer> chunk;
+            while ((chunk = chunks.next(charset)) != null) {
+                inFlight.addLast(pool.submit(chunk));
+                if (inFlight.size() >= maxInFlight) {
+                    writeFully(channel, inFlight.removeFirst().get());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeFully(channel, inFlight.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + filename);
+        } catch (ExecutionException e) {
+            throw new IOException("Exception occurred while rendering " + filename, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders and encodes the records of a chunk of hotels
+     *
+     * @param chunk    hotel ids of the chunk
+     * @param renderer renderer of a record
+     * @param charset  charset of the report
+     * @return encoded records
+     */
+    private static ByteBuffer render(List<String> chunk, Renderer renderer, Charset charset) {
+        StringBuilder out = new StringBuilder(chunk.size() * 256);
+        for (String hotelId : chunk) {
+            renderer.render(hotelId, out);
+        }
+        return charset.encode(CharBuffer.wrap(out));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
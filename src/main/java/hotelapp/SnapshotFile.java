@@ -0,0 +1,209 @@
+package hotelapp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the hotels, attractions and descriptions of a HotelData, so a later start can skip
+ * parsing the hotel json, calling the Places API and scraping the html pages.
+ * Layout (big endian): magic, format version, fingerprint of the sources, number of hotels, the hotel
+ * records in ascending id order, and a CRC32 of everything before it. A hotel record holds the hotel
+ * fields, its attractions, a byte telling whether it has descriptions and, if so, its descriptions;
+ * strings are a length followed by UTF-8 bytes, with length -1 for null, so null fields load as null.
+ * The file is written to a temporary file and atomically renamed, and it is read by memory mapping it.
+ */
+class SnapshotFile {
+    private static final int MAGIC = 0x48534e50; // "HSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int CHECKSUM_BYTES = 8;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot of the data
+     *
+     * @param hotelData   data to write; the caller makes sure it does not change meanwhile
+     * @param file        snapshot file
+     * @param fingerprint fingerprint of the sources the data was built from
+     * @throws IOException if the file can not be written
+     */
+    static void write(HotelData hotelData, Path file, long fingerprint) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "snapshot", ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            List<String> hotelIds = hotelData.getHotels();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(hotelIds.size());
+            for (String hotelId : hotelIds) {
+                int h = Integer.parseInt(hotelId);
+                Hotel hotel = hotelData.getHotel(h);
+                out.writeInt(h);
+                writeString(out, hotel.getF());
+                writeString(out, hotel.getCi());
+                writeString(out, hotel.getPr());
+                writeString(out, hotel.getAd());
+                out.writeDouble(hotel.getLat());
+                out.writeDouble(hotel.getLng());
+                List<TouristAttraction> attractions = hotelData.getAttractions(h);
+                out.writeInt(attractions.size());
+                for (TouristAttraction attraction : attractions) {
+                    writeString(out, attraction.getId());
+                    writeString(out, attraction.getName());
+                    out.writeDouble(attraction.getRating());
+                    writeString(out, attraction.getAddress());
+                    out.writeDouble(attraction.getLat());
+                    out.writeDouble(attraction.getLng());
+                }
+                boolean hasDescriptions = hotelData.hasDescriptions(h);
+                out.writeBoolean(hasDescriptions);
+                if (hasDescriptions) {
+                    writeString(out, hotelData.getDescription(h, DescriptionStore.PROPERTY));
+                    writeString(out, hotelData.getDescription(h, DescriptionStore.AREA));
+                }
+            }
+            out.flush();
+            // the checksum itself is not part of the checksum
+            new DataOutputStream(Channels.newOutputStream(channel)).writeLong(crc.getValue());
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads a snapshot into the data, unless it is corrupt, of another format version, or was built from
+     * sources with another fingerprint; nothing is added in that case
+     *
+     * @param file        snapshot file
+     * @param hotelData   data to load into
+     * @param fingerprint fingerprint of the current sources
+     * @return true if the snapshot was loaded
+     * @throws IOException if the file can not be read
+     */
+    static boolean load(Path file, ThreadSafeHotelData hotelData, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + CHECKSUM_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = buffer.limit() - CHECKSUM_BYTES;
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != fingerprint) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer content = buffer.duplicate();
+            content.limit(end);
+            crc.update(content);
+            if (crc.getValue() != buffer.getLong(end)) {
+                System.out.println("Snapshot " + file + " is corrupt");
+                return false;
+            }
+            buffer.position(16);
+            int hotelCount = buffer.getInt();
+            for (int i = 0; i < hotelCount; i++) {
+                String hotelId = String.valueOf(buffer.getInt());
+                String name = readString(buffer);
+                String city = readString(buffer);
+                String state = readString(buffer);
+                String street = readString(buffer);
+                hotelData.addHotel(hotelId, name, city, state, street, buffer.getDouble(), buffer.getDouble());
+                int attractionCount = buffer.getInt();
+                for (int j = 0; j < attractionCount; j++) {
+                    String id = readString(buffer);
+                    String attractionName = readString(buffer);
+                    double rating = buffer.getDouble();
+                    String address = readString(buffer);
+                    hotelData.addTouristAttraction(hotelId, id, attractionName, rating, address,
+                            buffer.getDouble(), buffer.getDouble());
+                }
+                if (buffer.get() != 0) {
+                    Map<String, String> descMap = new HashMap<>();
+                    descMap.put(HtmlDescriptionScraper.PROPERTY_DESC, readString(buffer));
+                    descMap.put(HtmlDescriptionScraper.AREA_DESC, readString(buffer));
+                    hotelData.addDescriptions(hotelId, descMap);
+                }
+            }
+        }
+        hotelData.publishSnapshot();
+        return true;
+    }
+
+    /**
+     * Computes a fingerprint of source files from their names, sizes and modification times, so a snapshot
+     * built from older sources is detected as stale. Directories contribute the files directly in them.
+     *
+     * @param sources source files or directories
+     * @return fingerprint
+     * @throws IOException if a directory can not be listed
+     */
+    static long fingerprint(List<Path> sources) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path source : sources) {
+            if (Files.isDirectory(source)) {
+                try (DirectoryStream<Path> filesList = Files.newDirectoryStream(source)) {
+                    for (Path file : filesList) {
+                        files.add(file);
+                    }
+                }
+            } else if (Files.exists(source)) {
+                files.add(source);
+            }
+        }
+        files.sort(null);
+        CRC32 crc = new CRC32();
+        ByteBuffer entry = ByteBuffer.allocate(16);
+        for (Path file : files) {
+            crc.update(file.toString().getBytes(StandardCharsets.UTF_8));
+            entry.clear();
+            entry.putLong(Files.size(file)).putLong(Files.getLastModifiedTime(file).toMillis()).flip();
+            crc.update(entry);
+        }
+        return ((long) files.size() << 32) ^ crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,208 @@
+package hotelapp;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Sorted set of int hotel ids, stored unboxed in blocks of at most BLOCK_SIZE ascending ids. The blocks are
+ * kept in id order, so an id is found with a binary search over the first ids of the blocks and one within
+ * its block, and iterating from an id costs O(log n) plus the ids read. Adding or removing an id replaces
+ * the block it belongs to, so a block is never changed in place and a copy shares all blocks with the set
+ * it was copied from; copying only copies the array of block references.
+ */
+class SortedIdSet {
+    private static final int BLOCK_SIZE = 256;
+    private int[][] blocks;
+    private int blockCount;
+    private int size;
+
+    /**
+     * Constructor for an empty SortedIdSet
+     */
+    SortedIdSet() {
+        blocks = new int[4][];
+    }
+
+    /**
+     * Copy constructor; the copy is not affected by later changes of other
+     *
+     * @param other set to copy
+     */
+    SortedIdSet(SortedIdSet other) {
+        blocks = other.blocks.clone();
+        blockCount = other.blockCount;
+        size = other.size;
+    }
+
+    /**
+     * @return number of ids in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set has no ids
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether the set has an id
+     *
+     * @param id id
+     * @return true if the id is in the set
+     */
+    boolean contains(int id) {
+        return size > 0 && Arrays.binarySearch(blocks[blockOf(id)], id) >= 0;
+    }
+
+    /**
+     * Adds an id. A full block is split in two halves, except when the id goes after the last id of the
+     * set, so that ids added in ascending order fill their blocks.
+     *
+     * @param id id
+     * @return true if the id was not in the set yet
+     */
+    boolean add(int id) {
+        if (blockCount == 0) {
+            insertBlock(0, new int[]{id});
+            size = 1;
+            return true;
+        }
+        int b = blockOf(id);
+        int[] block = blocks[b];
+        int i = Arrays.binarySearch(block, id);
+        if (i >= 0) {
+            return false;
+        }
+        int at = -i - 1;
+        if (block.length < BLOCK_SIZE) {
+            blocks[b] = inserted(block, at, id);
+        } else if (at == block.length && b == blockCount - 1) {
+            insertBlock(b + 1, new int[]{id});
+        } else {
+            int half = block.length / 2;
+            int[] left = Arrays.copyOfRange(block, 0, half);
+            int[] right = Arrays.copyOfRange(block, half, block.length);
+            if (at <= half) {
+                left = inserted(left, at, id);
+            } else {
+                right = inserted(right, at - half, id);
+            }
+            blocks[b] = left;
+            insertBlock(b + 1, right);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an id
+     *
+     * @param id id
+     * @return true if the id was in the set
+     */
+    boolean remove(int id) {
+        if (size == 0) {
+            return false;
+        }
+        int b = blockOf(id);
+        int[] block = blocks[b];
+        int i = Arrays.binarySearch(block, id);
+        if (i < 0) {
+            return false;
+        }
+        if (block.length == 1) {
+            System.arraycopy(blocks, b + 1, blocks, b, blockCount - b - 1);
+            blocks[--blockCount] = null;
+        } else {
+            int[] updated = new int[block.length - 1];
+            System.arraycopy(block, 0, updated, 0, i);
+            System.arraycopy(block, i + 1, updated, i, block.length - i - 1);
+            blocks[b] = updated;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Iterates the ids from an id on, in ascending order. The set must not be changed while iterating.
+     *
+     * @param fromId    first id to iterate, if it is in the set
+     * @param inclusive false to start after fromId
+     * @return iterator of the ids
+     */
+    PrimitiveIterator.OfInt iterator(int fromId, boolean inclusive) {
+        int b = 0;
+        int position = 0;
+        if (size > 0) {
+            b = blockOf(fromId);
+            int i = Arrays.binarySearch(blocks[b], fromId);
+            position = i >= 0 ? (inclusive ? i : i + 1) : -i - 1;
+        }
+        int startBlock = b;
+        int startPosition = position;
+        return new PrimitiveIterator.OfInt() {
+            private int block = startBlock;
+            private int index = startPosition;
+
+            @Override
+            public boolean hasNext() {
+                while (block < blockCount && index >= blocks[block].length) {
+                    block++;
+                    index = 0;
+                }
+                return block < blockCount;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return blocks[block][index++];
+            }
+        };
+    }
+
+    /**
+     * Finds the block an id belongs in: the last block whose first id is not greater than the id, or the
+     * first block if there is none. The set must not be empty.
+     *
+     * @param id id
+     * @return index of the block
+     */
+    private int blockOf(int id) {
+        int low = 1;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks[middle][0] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    private void insertBlock(int index, int[] block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        blocks[index] = block;
+        blockCount++;
+    }
+
+    private static int[] inserted(int[] block, int at, int id) {
+        int[] updated = new int[block.length + 1];
+        System.arraycopy(block, 0, updated, 0, at);
+        updated[at] = id;
+        System.arraycopy(block, at, updated, at + 1, block.length - at);
+        return updated;
+    }
+}
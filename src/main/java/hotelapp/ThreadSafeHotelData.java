@@ -1,22 +1,117 @@
 package hotelapp;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Class ThreadSafeHotelData - extends class HotelData (rename your class from project 1 as needed).
  * Thread-safe, uses ReentrantReadWriteLock to synchronize access to all data structures.
+ * In snapshot mode writers also publish an immutable copy of the data with publishSnapshot(), and
+ * reads are served from the published snapshot without taking any lock. A write discards the snapshot,
+ * so until the next publishSnapshot() reads fall back to the read lock and always see the latest data.
+ * Descriptions written with stageDescriptions() keep the published snapshot instead: reads stay on it,
+ * without a lock, until publishSnapshot() swaps in a copy with all staged descriptions at once.
+ * Rendered hotel, attraction and description views are kept in a RenderCache; every write invalidates
+ * the views of the hotel it changes.
  */
 public class ThreadSafeHotelData extends HotelData {
+	private static final int RENDER_CACHE_SIZE = 10000;
 	private ReentrantReadWriteLock lock;
+	private final boolean snapshotMode;
+	private volatile HotelData snapshot;
+	private final RenderCache renderCache = new RenderCache(RENDER_CACHE_SIZE);
+	// hotels whose staged descriptions are not in the published snapshot yet; guarded by itself
+	private final Set<Integer> stagedDescriptions = new HashSet<>();
 
 
 	/**
 	 * Constructor for ThreadsafeHotelData which initializes the lock
 	 */
 	public ThreadSafeHotelData() {
-		super();
+		this(false);
+	}
+
+	/**
+	 * Constructor for ThreadsafeHotelData which initializes the lock
+	 *
+	 * @param snapshotMode true to serve reads from snapshots published by publishSnapshot()
+	 */
+	public ThreadSafeHotelData(boolean snapshotMode) {
+		this(snapshotMode, false);
+	}
+
+	/**
+	 * Constructor for ThreadsafeHotelData which initializes the lock
+	 *
+	 * @param snapshotMode true to serve reads from snapshots published by publishSnapshot()
+	 * @param compressDescriptions true to keep the descriptions deflate compressed
+	 */
+	public ThreadSafeHotelData(boolean snapshotMode, boolean compressDescriptions) {
+		this(snapshotMode, compressDescriptions, false);
+	}
+
+	/**
+	 * Constructor for ThreadsafeHotelData which initializes the lock
+	 *
+	 * @param snapshotMode true to serve reads from snapshots published by publishSnapshot()
+	 * @param compressDescriptions true to keep the descriptions deflate compressed
+	 * @param columnarHotels true to keep the hotels in a columnar HotelStore instead of Hotel objects
+	 */
+	public ThreadSafeHotelData(boolean snapshotMode, boolean compressDescriptions, boolean columnarHotels) {
+		super(compressDescriptions, columnarHotels);
 		this.lock = new ReentrantReadWriteLock();
+		this.snapshotMode = snapshotMode;
+	}
+
+	/**
+	 * @return hit ratio and counts of the cache of rendered hotel, attraction and description views
+	 */
+	public String getRenderCacheStats() {
+		return renderCache.getStats();
+	}
+
+	/**
+	 * Builds an immutable copy of the current data and publishes it for lock-free reads. Writers call
+	 * this once a batch of writes is done; it does nothing unless the object is in snapshot mode.
+	 */
+	public void publishSnapshot() {
+		if (!snapshotMode) {
+			return;
+		}
+		try {
+			lock.readLock().lock();
+			// no writer can run while the read lock is held, so the copy is consistent and current
+			snapshot = new HotelData(this);
+			// views rendered from the previous snapshot are dropped only now that the new one is published
+			invalidateStagedDescriptions();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Discards the published snapshot; called by writers holding the write lock. Reads now see the live
+	 * data, including staged descriptions, so their cached views are dropped too.
+	 */
+	private void discardSnapshot() {
+		snapshot = null;
+		invalidateStagedDescriptions();
+	}
+
+	private void invalidateStagedDescriptions() {
+		List<Integer> hotelIds;
+		synchronized (stagedDescriptions) {
+			hotelIds = new ArrayList<>(stagedDescriptions);
+			stagedDescriptions.clear();
+		}
+		for (int hotelId : hotelIds) {
+			renderCache.invalidate(hotelId, RenderCache.DESCRIPTION_VIEW);
+		}
 	}
 
 	/**
@@ -42,14 +137,17 @@ public class ThreadSafeHotelData extends HotelData {
 						 double lon) {
 		try {
 			lock.writeLock().lock();
+			discardSnapshot();
 			super.addHotel(hotelId, hotelName, city, state, streetAddress, lat, lon);
+			renderCache.invalidate(Integer.parseInt(hotelId), RenderCache.HOTEL_VIEW, RenderCache.ATTRACTION_VIEW,
+					RenderCache.DESCRIPTION_VIEW);
 		} finally {
 			lock.writeLock().unlock();
 		}
 	}
 
 	/**
-	 * This will add tourist attraction the the map
+	 * This will add tourist attraction with an unknown location the the map
 	 *
 	 * @param hotelId hotel id
 	 * @param id      attraction
@@ -58,9 +156,29 @@ public class ThreadSafeHotelData extends HotelData {
 	 * @param address address of attraction
 	 */
 	public void addTouristAttraction(String hotelId, String id, String name, double rating, String address) {
+		addTouristAttraction(hotelId, id, name, rating, address, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * This will add tourist attraction the the map. The attraction is added to the shared attraction table
+	 * before taking the write lock, so threads fetching attractions only hold the lock to add the handle.
+	 *
+	 * @param hotelId hotel id
+	 * @param id      attraction
+	 * @param name    attraction name
+	 * @param rating  rating of attraction
+	 * @param address address of attraction
+	 * @param lat     latitude of attraction, NaN if unknown
+	 * @param lng     longitude of attraction, NaN if unknown
+	 */
+	public void addTouristAttraction(String hotelId, String id, String name, double rating, String address,
+									 double lat, double lng) {
+		int handle = addToAttractionTable(id, name, rating, address, lat, lng);
 		try {
 			lock.writeLock().lock();
-			super.addTouristAttraction(hotelId, id, name, rating, address);
+			discardSnapshot();
+			super.addTouristAttraction(hotelId, handle);
+			renderCache.invalidate(Integer.parseInt(hotelId), RenderCache.ATTRACTION_VIEW);
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -68,7 +186,7 @@ public class ThreadSafeHotelData extends HotelData {
 
 
 	/**
-	 * This method will add description details into the descriptionsMap map
+	 * This method will add description details into the description store
 	 *
 	 * @param hotelId hotel id
 	 * @param descMap map with property and area desc
@@ -76,7 +194,34 @@ public class ThreadSafeHotelData extends HotelData {
 	public void addDescriptions(String hotelId, Map<String, String> descMap) {
 		try {
 			lock.writeLock().lock();
+			discardSnapshot();
 			super.addDescriptions(hotelId, descMap);
+			renderCache.invalidate(Integer.parseInt(hotelId), RenderCache.DESCRIPTION_VIEW);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds descriptions like addDescriptions(), but keeps the published snapshot: reads keep being served
+	 * from it, with the previous descriptions, until the next publishSnapshot(). Without a published
+	 * snapshot this is the same as addDescriptions().
+	 *
+	 * @param hotelId hotel id
+	 * @param descMap map with property and area desc
+	 */
+	void stageDescriptions(String hotelId, Map<String, String> descMap) {
+		int id = Integer.parseInt(hotelId);
+		try {
+			lock.writeLock().lock();
+			super.addDescriptions(hotelId, descMap);
+			if (snapshot != null) {
+				synchronized (stagedDescriptions) {
+					stagedDescriptions.add(id);
+				}
+			} else {
+				renderCache.invalidate(id, RenderCache.DESCRIPTION_VIEW);
+			}
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -85,10 +230,14 @@ public class ThreadSafeHotelData extends HotelData {
 
 	/**
 	 * Overrides a method of the parent class to make it thread-safe.
-	 * Return an alphabetized list of the ids of all hotels
+	 * Return the ids of all hotels, sorted in ascending numeric order
 	 * @return List Of Hotel Ids
 	 */
 	public List<String> getHotels() {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotels();
+		}
 		try {
 			lock.readLock().lock();
 			return super.getHotels();
@@ -97,6 +246,428 @@ public class ThreadSafeHotelData extends HotelData {
 		}
 	}
 
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param fromId lowest id of the range (inclusive)
+	 * @param toId   highest id of the range (inclusive)
+	 * @return ids of the hotels in the range, sorted in ascending numeric order
+	 */
+	public List<String> getHotelsInRange(int fromId, int toId) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotelsInRange(fromId, toId);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getHotelsInRange(fromId, toId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param afterId  the page starts with the first hotel id greater than afterId
+	 * @param pageSize maximum number of ids in the page
+	 * @return ids of the page, sorted in ascending numeric order
+	 */
+	public List<String> getHotelPage(int afterId, int pageSize) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotelPage(afterId, pageSize);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getHotelPage(afterId, pageSize);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param lat           latitude of the location
+	 * @param lng           longitude of the location
+	 * @param radiusInMiles radius in miles
+	 * @return hotels within the radius, nearest first
+	 */
+	public List<Hotel> getHotelsNear(double lat, double lng, double radiusInMiles) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotelsNear(lat, lng, radiusInMiles);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getHotelsNear(lat, lng, radiusInMiles);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param lat latitude of the location
+	 * @param lng longitude of the location
+	 * @param k   number of hotels to find
+	 * @return nearest hotels, nearest first
+	 */
+	public List<Hotel> getNearestHotels(double lat, double lng, int k) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getNearestHotels(lat, lng, k);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getNearestHotels(lat, lng, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param lat           latitude of the location
+	 * @param lng           longitude of the location
+	 * @param radiusInMiles radius in miles
+	 * @return attractions within the radius, nearest first
+	 */
+	public List<TouristAttraction> getAttractionsNear(double lat, double lng, double radiusInMiles) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getAttractionsNear(lat, lng, radiusInMiles);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getAttractionsNear(lat, lng, radiusInMiles);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Provides hotel details with hotel id
+	 *
+	 * @param hotelId id of the hotel
+	 * @return Hotel
+	 */
+	Hotel getHotel(int hotelId) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotel(hotelId);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getHotel(hotelId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param hotelId id of the hotel
+	 * @return attractions, best rated first; empty if there are none
+	 */
+	List<TouristAttraction> getAttractions(int hotelId) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getAttractions(hotelId);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getAttractions(hotelId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * The whole batch is resolved against the published snapshot, or under a single hold of the read lock,
+	 * so it sees either all or none of the changes of every write. Without a snapshot, the results are
+	 * collected under the lock and passed to the sink after it is released, so a sink writing to a slow
+	 * client never holds up writers, nor the readers queued behind them.
+	 *
+	 * @param batch lookups to resolve
+	 * @param sink  receiver of the results
+	 * @throws IOException if the sink can not write a result
+	 */
+	void lookup(BatchLookup batch, BatchLookup.Sink sink) throws IOException {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			snapshot.lookup(batch, sink);
+			return;
+		}
+		BatchLookup.Results results = new BatchLookup.Results(batch);
+		try {
+			lock.readLock().lock();
+			super.lookup(batch, results);
+		} finally {
+			lock.readLock().unlock();
+		}
+		results.replay(sink);
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 *
+	 * @param hotelId id of the hotel
+	 * @param section DescriptionStore.PROPERTY or DescriptionStore.AREA
+	 * @return text of the section, or null if there are no descriptions for the hotel or the section is null
+	 */
+	String getDescription(int hotelId, int section) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getDescription(hotelId, section);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getDescription(hotelId, section);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a string representing information about the hotel with the given id
+	 *
+	 * @param hotelId Hotel Id
+	 * @return output string
+	 */
+	public String toString(String hotelId) {
+		int id = Integer.parseInt(hotelId);
+		long key = RenderCache.key(RenderCache.HOTEL_VIEW, id);
+		String view = renderCache.get(key);
+		if (view != null) {
+			return view;
+		}
+		long epoch = renderCache.epoch();
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			view = snapshot.toString(hotelId);
+		} else {
+			try {
+				lock.readLock().lock();
+				view = super.toString(hotelId);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		renderCache.put(key, view, epoch);
+		return view;
+	}
+
+	/**
+	 * Print string representation of attraction of this hotel Id
+	 *
+	 * @param hotelId id of hotel
+	 * @return String value
+	 */
+	String toStringAttraction(String hotelId) {
+		int id = Integer.parseInt(hotelId);
+		long key = RenderCache.key(RenderCache.ATTRACTION_VIEW, id);
+		String view = renderCache.get(key);
+		if (view != null) {
+			return view;
+		}
+		long epoch = renderCache.epoch();
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			view = snapshot.toStringAttraction(hotelId);
+		} else {
+			try {
+				lock.readLock().lock();
+				view = super.toStringAttraction(hotelId);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		renderCache.put(key, view, epoch);
+		return view;
+	}
+
+	/**
+	 * Print string representation of the k best rated attractions of this hotel Id
+	 *
+	 * @param hotelId id of hotel
+	 * @param k maximum number of attractions
+	 * @return String value
+	 */
+	String toStringAttraction(String hotelId, int k) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.toStringAttraction(hotelId, k);
+		}
+		try {
+			lock.readLock().lock();
+			return super.toStringAttraction(hotelId, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Print string representation of description of this hotel Id
+	 *
+	 * @param hotelId id of hotel
+	 * @return string value
+	 */
+	String toStringDescription(String hotelId) {
+		int id = Integer.parseInt(hotelId);
+		long key = RenderCache.key(RenderCache.DESCRIPTION_VIEW, id);
+		String view = renderCache.get(key);
+		if (view != null) {
+			return view;
+		}
+		long epoch = renderCache.epoch();
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			view = snapshot.toStringDescription(hotelId);
+		} else {
+			try {
+				lock.readLock().lock();
+				view = super.toStringDescription(hotelId);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		renderCache.put(key, view, epoch);
+		return view;
+	}
+
+	/**
+	 * Saves the string representation of the hotel data to the file, reading one consistent view of the data
+	 *
+	 * @param filename Path specifying where to save the output.
+	 */
+	public void printToFile(Path filename) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			snapshot.printToFile(filename);
+			return;
+		}
+		try {
+			lock.readLock().lock();
+			super.printToFile(filename);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * Return one page of the ids of the hotels in a city, a state, or a city of a state
+	 *
+	 * @param city city, or null for any city
+	 * @param state state, or null for any state
+	 * @param afterId the page starts with the first matching hotel id greater than afterId
+	 * @param pageSize maximum number of ids in the page
+	 * @return ids of the page, sorted in ascending numeric order
+	 */
+	public List<String> getHotelPageByLocation(String city, String state, int afterId, int pageSize) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getHotelPageByLocation(city, state, afterId, pageSize);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getHotelPageByLocation(city, state, afterId, pageSize);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * Returns the best rated attractions near the hotels of a city
+	 *
+	 * @param city city, ignoring case
+	 * @param k maximum number of attractions to return
+	 * @return attractions, best rated first
+	 */
+	public List<TouristAttraction> getTopAttractionsInCity(String city, int k) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getTopAttractionsInCity(city, k);
+		}
+		try {
+			lock.readLock().lock();
+			return super.getTopAttractionsInCity(city, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * Finds the hotels whose names start with a prefix, ignoring case
+	 *
+	 * @param prefix prefix of the hotel name
+	 * @param n maximum number of hotels to return
+	 * @return ids of the hotels in alphabetical order of their names
+	 */
+	public List<String> suggestHotels(String prefix, int n) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.suggestHotels(prefix, n);
+		}
+		try {
+			lock.readLock().lock();
+			return super.suggestHotels(prefix, n);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * Finds the hotels whose descriptions match the query terms best
+	 *
+	 * @param query query terms
+	 * @param k maximum number of hotels to return
+	 * @return ids of the matching hotels, best match first
+	 */
+	public List<String> searchDescriptions(String query, int k) {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.searchDescriptions(query, k);
+		}
+		try {
+			lock.readLock().lock();
+			return super.searchDescriptions(query, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Overrides a method of the parent class to make it thread-safe.
+	 * Writes a binary snapshot of the data from the published snapshot, or under the read lock.
+	 *
+	 * @param filename snapshot file
+	 * @param fingerprint fingerprint of the sources the data was built from
+	 * @throws IOException if the file can not be written
+	 */
+	public void writeSnapshot(Path filename, long fingerprint) throws IOException {
+		HotelData snapshot = this.snapshot;
+		if (snapshot != null) {
+			snapshot.writeSnapshot(filename, fingerprint);
+			return;
+		}
+		try {
+			lock.readLock().lock();
+			super.writeSnapshot(filename, fingerprint);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 	/**
 	 * This method will return hotel details if we provide hotel id
 	 *
@@ -116,12 +687,22 @@ public class ThreadSafeHotelData extends HotelData {
 		super.findAttractionById(id);
 	}
 
+	/**
+	 * This method will retrieve the k best rated attractions of particular hotel id
+	 *
+	 * @param id hotel id
+	 * @param k maximum number of attractions
+	 */
+	public void findAttractionById(String id, int k) {
+		super.findAttractionById(id, k);
+	}
+
 	/**
 	 * This method will retrieve description of particular hotel id
 	 *
 	 * @param id hotel id
 	 */
 	public void findDescriptionById(String id) {
-	super.findDescriptionById(id);
+		super.findDescriptionById(id);
 	}
 }
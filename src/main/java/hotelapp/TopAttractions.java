@@ -0,0 +1,76 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Best rated attractions seen so far, bounded to a fixed number. The attractions are kept in a min-heap
+ * ordered by rating, so an offered attraction only replaces the worst one if it is rated higher, and an
+ * attraction offered again (for another hotel) is counted once.
+ */
+class TopAttractions {
+    // best first: higher rating, then lower id
+    static final Comparator<TouristAttraction> BEST_FIRST = Comparator
+            .comparingDouble(TouristAttraction::getRating).reversed()
+            .thenComparing(TouristAttraction::getId);
+    private final int capacity;
+    private final PriorityQueue<TouristAttraction> heap;
+    private final Set<String> ids;
+
+    /**
+     * Constructor for an empty TopAttractions
+     *
+     * @param capacity maximum number of attractions kept
+     */
+    TopAttractions(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(BEST_FIRST.reversed());
+        this.ids = new HashSet<>();
+    }
+
+    /**
+     * Copy constructor; the copy shares the attractions but not the heap with other
+     *
+     * @param other attractions to copy
+     */
+    TopAttractions(TopAttractions other) {
+        this.capacity = other.capacity;
+        this.heap = new PriorityQueue<>(other.heap);
+        this.ids = new HashSet<>(other.ids);
+    }
+
+    /**
+     * Offers an attraction, which is kept if it is among the capacity best attractions
+     *
+     * @param attraction attraction
+     */
+    void offer(TouristAttraction attraction) {
+        if (ids.contains(attraction.getId())) {
+            return;
+        }
+        if (heap.size() == capacity) {
+            if (BEST_FIRST.compare(attraction, heap.peek()) >= 0) {
+                return;
+            }
+            ids.remove(heap.poll().getId());
+        }
+        heap.add(attraction);
+        ids.add(attraction.getId());
+    }
+
+    /**
+     * Returns the best attractions
+     *
+     * @param k maximum number of attractions to return
+     * @return at most k attractions, best first
+     */
+    List<TouristAttraction> top(int k) {
+        List<TouristAttraction> sorted = new ArrayList<>(heap);
+        sorted.sort(BEST_FIRST);
+        return sorted.size() > k ? new ArrayList<>(sorted.subList(0, Math.max(0, k))) : sorted;
+    }
+}
@@ -5,9 +5,11 @@ public class TouristAttraction {
     private String name;
     private double rating;
     private String address;
+    private double lat;
+    private double lng;
 
 
-    /** Constructor for TouristAttraction
+    /** Constructor for TouristAttraction with an unknown location
      *
      * @param id id of the attraction
      * @param name name of the attraction
@@ -15,10 +17,25 @@ public class TouristAttraction {
      * @param address address of the attraction
      */
     public TouristAttraction(String id, String name, double rating, String address) {
+        this(id, name, rating, address, Double.NaN, Double.NaN);
+    }
+
+    /** Constructor for TouristAttraction
+     *
+     * @param id id of the attraction
+     * @param name name of the attraction
+     * @param rating overall rating of the attraction
+     * @param address address of the attraction
+     * @param lat latitude of the attraction, NaN if unknown
+     * @param lng longitude of the attraction, NaN if unknown
+     */
+    public TouristAttraction(String id, String name, double rating, String address, double lat, double lng) {
         this.id = id;
         this.name=name;
         this.rating=rating;
         this.address=address;
+        this.lat=lat;
+        this.lng=lng;
     }
 
     /** toString() method
@@ -48,4 +65,19 @@ public class TouristAttraction {
     public String getAddress() {
         return address;
     }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    /**
+     * @return true if the location of the attraction is known
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(lat) && !Double.isNaN(lng);
+    }
 }
@@ -4,10 +4,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
-import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
@@ -15,8 +13,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Class responsible for getting tourist attractions near each hotel from the Google Places API.
  *  Also scrapes some data about hotels from expedia html webpage.
@@ -25,48 +26,397 @@ public class TouristAttractionFinder {
 
     private static final String host = "maps.googleapis.com";
     private static final String path = "/maps/api/place/textsearch/json";
-    private static final String query = "https://"+host+path+"?query=tourist%20attractions+in";
+    private static final String query = path + "?query=tourist%20attractions+in";
     private static final String ASTERISKS = "++++++++++++++++++++";
     private static final double MILES_TO_METRES = 1609.344;
+    // fetched areas are shrunk by this fraction of their radius when checking coverage on the flat map
+    private static final double COVERAGE_MARGIN = 0.01;
+    static final String HTML_DIRECTORY = "input" + File.separator + "html";
+    private static final String HTML_SUFFIX = ".html";
+    private static final int DEFAULT_CONCURRENT_REQUESTS = 8;
     private ThreadSafeHotelData hotelData;
+    private final String placesHost;
+    private final int placesPort;
+    private final SSLSocketFactory socketFactory;
+    private final GeoIndex<double[]> fetchedAreas = new GeoIndex<>();
+    private PlacesResponseCache responseCache;
+    private double maxFetchedRadius;
     private static final String FIND_HOTEL_BY_ID_CMD = "find";
     private static final String FIND_ATTRACTIONS = "findAttraction";
     private static final String FIND_DESCRIPTIONS = "findDescriptions";
-    private static final String REGEX_PATTERN_STRING_AREA = "(About this area.+?<h4+.*?>)(.*?(?=<))(.*?<p+.*?>)(.*?(?=<))";
-    private static final String REGEX_PATTERN_STRING_PROPERTY = "(About this property.+?<h4+.*?>)(.*?(?=<))(.*?<p+.*?>)(.*?(?=<))";
+    private static final String FIND_CITY_ATTRACTIONS = "findCityAttractions";
+    private static final String TOP_OPTION = "top";
+    private static final int CITY_ATTRACTION_RESULTS = 10;
+    private static final String HOTELS_CMD = "hotels";
+    private static final String CITY_OPTION = "city";
+    private static final String STATE_OPTION = "state";
+    private static final int HOTELS_PAGE_SIZE = 100;
+    private static final String NEARBY_CMD = "nearby";
+    private static final String NEAREST_CMD = "nearest";
+    private static final String SEARCH_CMD = "search";
+    private static final int SEARCH_RESULTS = 10;
+    private static final String SUGGEST_CMD = "suggest";
+    private static final int SUGGEST_RESULTS = 10;
+    private static final String BATCH_CMD = "batch";
 
 
     /** Constructor for TouristAttractionFinder
      * @param hdata ThreadSafeHotelData object
      */
     public TouristAttractionFinder(ThreadSafeHotelData hdata) {
+        this(hdata, host, 443, (SSLSocketFactory) SSLSocketFactory.getDefault());
+    }
+
+    /** Constructor for TouristAttractionFinder that sends the Places requests to the given server,
+     * for example a local stand-in server
+     * @param hdata ThreadSafeHotelData object
+     * @param placesHost host of the Places API server
+     * @param placesPort port of the Places API server
+     * @param socketFactory factory for the TLS sockets to the server
+     */
+    TouristAttractionFinder(ThreadSafeHotelData hdata, String placesHost, int placesPort, SSLSocketFactory socketFactory) {
         this.hotelData = hdata;
+        this.placesHost = placesHost;
+        this.placesPort = placesPort;
+        this.socketFactory = socketFactory;
     }
 
 
+    /** Sets the on-disk cache used for Places responses; without a cache every fetch goes to the network
+     * @param responseCache cache of Places responses
+     */
+    public void setResponseCache(PlacesResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     /**
-     * Creates a secure socket to communicate with Google Places API server,
-     * sends a GET request (to find attractions close to
-     * the hotel within a given radius), and gets a response as a string.
-     * Removes headers from the response string and parses the remaining json to
-     * get Attractions info. Adds attractions to the corresponding data structure that supports
+     * Sends a GET request to the Google Places API server over pooled keep-alive connections
+     * (to find attractions close to the hotel within a given radius), and streams the body of the
+     * response into the json parser to get Attractions info. Adds attractions to the corresponding data structure that supports
      * efficient search for tourist attractions given the hotel id.
+     * Hotels whose radius is covered by the areas fetched for earlier hotels get their attractions
+     * from the attractions already stored, without a request.
      *
+     * @param radiusInMiles radius in miles
      */
     public void fetchAttractions(int radiusInMiles) {
+        fetchAttractions(radiusInMiles, DEFAULT_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Fetches the attractions of all hotels like fetchAttractions(int), running the requests of different
+     * hotels concurrently with at most maxConcurrentRequests requests in flight. Attractions are added to
+     * ThreadSafeHotelData as soon as the response of a hotel has been parsed.
+     * <p>
+     * The hotels are fetched in waves, and coverage is only ever checked against fetches that have
+     * completed. A hotel waits for the next wave when a fetch of the current wave could help to cover it:
+     * when its center lies in the area of that fetch, or its circle overlaps that area and its center
+     * already lies in a completed one. Hotels that no fetch in flight can cover are fetched right away, so
+     * the requests of a wave are spread over areas that do not cover each other, and nearby hotels are
+     * checked again once their neighbours have been fetched.
+     *
+     * @param radiusInMiles         radius in miles
+     * @param maxConcurrentRequests maximum number of requests in flight
+     */
+    public void fetchAttractions(int radiusInMiles, int maxConcurrentRequests) {
         String apiKey = getAPIKey();
         if (apiKey != null && apiKey.length() > 0) {
-            for (String hotelId : hotelData.getHotels()) {
-                Hotel hotel = hotelData.getHotel(Integer.parseInt(hotelId));
-                String jsonStringWithHeader = getJsonString(radiusInMiles, hotel, apiKey);
-                String jsonStringWithoutHeader = removeHeaders(jsonStringWithHeader);
-                hotelData.parseTouristAttractionJson(jsonStringWithoutHeader, hotelId);
+            AtomicInteger requests = new AtomicInteger();
+            List<String> hotelIds = hotelData.getHotels();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, maxConcurrentRequests));
+            try (PlacesHttpClient client = new PlacesHttpClient(placesHost, placesPort, socketFactory, maxConcurrentRequests)) {
+                List<Hotel> pending = new ArrayList<>();
+                for (String hotelId : hotelIds) {
+                    pending.add(hotelData.getHotel(Integer.parseInt(hotelId)));
+                }
+                while (!pending.isEmpty()) {
+                    pending = fetchWave(client, pending, radiusInMiles, apiKey, requests, pool);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.out.println("Exception occurred while fetching attractions: " + e.getCause());
+            } finally {
+                pool.shutdownNow();
             }
+            System.out.println("Fetched attractions for " + hotelIds.size() + " hotels with " + requests + " requests");
+            if (responseCache != null) {
+                System.out.println(responseCache.getStats());
+            }
+            hotelData.publishSnapshot();
         } else {
             System.out.println("Please provide API key!!!!!!!!");
         }
     }
 
+    /**
+     * Runs one wave of fetches: answers the pending hotels covered by completed fetches from the attractions
+     * already stored, starts a fetch for each hotel that no fetch of the wave could help to cover, and waits
+     * for the fetches of the wave to complete
+     *
+     * @param client        client for the Places API
+     * @param pending       hotels whose attractions have not been added yet
+     * @param radiusInMiles radius in miles
+     * @param apiKey        api key
+     * @param requests      counter of the requests sent
+     * @param pool          threads running the fetches
+     * @return hotels left for the next wave
+     * @throws InterruptedException if interrupted while waiting for the fetches
+     * @throws ExecutionException   if a fetch failed with an unexpected exception
+     */
+    private List<Hotel> fetchWave(PlacesHttpClient client, List<Hotel> pending, int radiusInMiles, String apiKey,
+                                  AtomicInteger requests, ExecutorService pool)
+            throws InterruptedException, ExecutionException {
+        List<Hotel> deferred = new ArrayList<>();
+        GeoIndex<Hotel> inFlight = new GeoIndex<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Hotel hotel : pending) {
+            double lat = hotel.getLat();
+            double lng = hotel.getLng();
+            if (isCovered(lat, lng, radiusInMiles)) {
+                addAttractionsNear(hotel, radiusInMiles);
+            } else if (!inFlight.findWithinRadius(lat, lng, radiusInMiles).isEmpty()
+                    || (!inFlight.findWithinRadius(lat, lng, 2.0 * radiusInMiles).isEmpty()
+                    && isInAnyArea(lat, lng, fetchedAreasNear(lat, lng, 0)))) {
+                deferred.add(hotel);
+            } else {
+                inFlight.add(lat, lng, hotel);
+                futures.add(pool.submit(() -> fetchAttractions(client, hotel, radiusInMiles, apiKey, requests)));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return deferred;
+    }
+
+    /**
+     * Fetches the attractions of one hotel and records the area fetched
+     *
+     * @param client        client for the Places API
+     * @param hotel         hotel
+     * @param radiusInMiles radius in miles
+     * @param apiKey        api key
+     * @param requests      counter of the requests sent
+     */
+    private void fetchAttractions(PlacesHttpClient client, Hotel hotel, int radiusInMiles, String apiKey,
+                                  AtomicInteger requests) {
+        String hotelId = hotel.getId();
+        String cacheKey = PlacesResponseCache.key(hotel.getCi(), hotel.getLat(), hotel.getLng(), radiusInMiles);
+        Path cached = responseCache != null ? responseCache.get(cacheKey) : null;
+        if (cached == null || !parseAttractionsFile(cached, hotelId)) {
+            requests.incrementAndGet();
+            String[] status = new String[1];
+            try {
+                client.get(getPathResourceQuery(radiusInMiles, hotel, apiKey), body -> {
+                    if (responseCache == null) {
+                        status[0] = hotelData.parseTouristAttractionJson(
+                                new InputStreamReader(body, StandardCharsets.UTF_8), hotelId);
+                        return;
+                    }
+                    // parsed from memory, so the attractions do not depend on the cache entry staying readable
+                    byte[] response = body.readAllBytes();
+                    status[0] = hotelData.parseTouristAttractionJson(
+                            new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8), hotelId);
+                    if (PlacesResponseCache.isCacheable(status[0])) {
+                        try {
+                            responseCache.put(cacheKey, new ByteArrayInputStream(response));
+                        } catch (IOException e) {
+                            System.out.println("IO Exception occurred while caching attractions of hotel " + hotelId
+                                    + ": " + e);
+                        }
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Exception occurred while fetching attractions of hotel " + hotelId + ": " + e);
+                return;
+            }
+            if (!PlacesResponseCache.isCacheable(status[0])) {
+                // an error answer says nothing about the area, so it must not count as fetched
+                System.out.println("Places request for hotel " + hotelId + " failed with status " + status[0]);
+                return;
+            }
+        }
+        synchronized (fetchedAreas) {
+            fetchedAreas.add(hotel.getLat(), hotel.getLng(), new double[]{hotel.getLat(), hotel.getLng(), radiusInMiles});
+            maxFetchedRadius = Math.max(maxFetchedRadius, radiusInMiles);
+        }
+    }
+
+    /**
+     * Parses a response body stored in the cache
+     *
+     * @param file    cached response body
+     * @param hotelId hotel id
+     * @return true if the file was read and holds a complete answer, false if it has to be fetched again
+     */
+    private boolean parseAttractionsFile(Path file, String hotelId) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            // entries written before errors were kept out of the cache may hold one
+            return PlacesResponseCache.isCacheable(hotelData.parseTouristAttractionJson(reader, hotelId));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Exception occurred while reading cached attractions of hotel " + hotelId + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the fetched areas that may reach within a distance of a location
+     *
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles distance in miles
+     * @return fetched areas as {lat, lng, radiusInMiles}
+     */
+    private List<double[]> fetchedAreasNear(double lat, double lng, double radiusInMiles) {
+        synchronized (fetchedAreas) {
+            return fetchedAreas.findWithinRadius(lat, lng, radiusInMiles + maxFetchedRadius);
+        }
+    }
+
+    /**
+     * Checks whether the circle around a location is covered by the union of the areas already fetched.
+     * The check is exact rather than sampled: every region of the circle left uncovered is bounded by arcs
+     * of the circles involved, so it either touches a point where two of the circles cross, or it is the
+     * whole border of the circle. The circle is therefore covered when every crossing point inside it lies
+     * strictly inside a third fetched area, and, if no fetched area crosses its border, when a point of the
+     * border does. The circles are compared on a flat map around the location, with the fetched areas
+     * shrunk by COVERAGE_MARGIN, so the distortion of the map can only make the check stricter.
+     *
+     * @param lat           latitude of the location
+     * @param lng           longitude of the location
+     * @param radiusInMiles radius in miles
+     * @return true if the attractions of the circle can be taken from the attractions already stored
+     */
+    private boolean isCovered(double lat, double lng, double radiusInMiles) {
+        List<double[]> areas = fetchedAreasNear(lat, lng, radiusInMiles);
+        for (double[] area : areas) {
+            if (GeoIndex.distanceInMiles(lat, lng, area[0], area[1]) + radiusInMiles <= area[2]) {
+                return true;
+            }
+        }
+        if (!isInAnyArea(lat, lng, areas)) {
+            return false;
+        }
+        // circle 0 is the circle to cover, centered at the origin of the map; coordinates are in miles
+        double milesPerDegree = Math.toRadians(GeoIndex.EARTH_RADIUS_MILES);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        int n = areas.size() + 1;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] r = new double[n];
+        r[0] = radiusInMiles;
+        for (int i = 1; i < n; i++) {
+            double[] area = areas.get(i - 1);
+            x[i] = (area[1] - lng) * cosLat * milesPerDegree;
+            y[i] = (area[0] - lat) * milesPerDegree;
+            r[i] = area[2] * (1 - COVERAGE_MARGIN);
+        }
+        boolean borderCrossed = false;
+        double[] crossings = new double[4];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int count = crossings(x, y, r, i, j, crossings);
+                for (int c = 0; c < count; c += 2) {
+                    double px = crossings[c];
+                    double py = crossings[c + 1];
+                    // crossings with the border of circle 0 are on it, whatever the rounding says
+                    if (i > 0 && px * px + py * py > radiusInMiles * radiusInMiles) {
+                        continue;
+                    }
+                    borderCrossed |= i == 0;
+                    if (!isInsideOther(x, y, r, px, py, i, j)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return borderCrossed || isInsideOther(x, y, r, radiusInMiles, 0, 0, 0);
+    }
+
+    /**
+     * Finds the points where two circles cross. Circles that touch count as crossing in the touching point;
+     * identical circles do not cross.
+     *
+     * @param x         x of the centers
+     * @param y         y of the centers
+     * @param r         radii
+     * @param i         index of one circle
+     * @param j         index of the other circle
+     * @param crossings receives x and y of up to two points
+     * @return number of coordinates stored in crossings: 0 or 4
+     */
+    private static int crossings(double[] x, double[] y, double[] r, int i, int j, double[] crossings) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double d = Math.sqrt(dx * dx + dy * dy);
+        if (d == 0 || d > r[i] + r[j] || d < Math.abs(r[i] - r[j])) {
+            return 0;
+        }
+        double a = (r[i] * r[i] - r[j] * r[j] + d * d) / (2 * d);
+        double h = Math.sqrt(Math.max(0, r[i] * r[i] - a * a));
+        double mx = x[i] + a * dx / d;
+        double my = y[i] + a * dy / d;
+        crossings[0] = mx - h * dy / d;
+        crossings[1] = my + h * dx / d;
+        crossings[2] = mx + h * dy / d;
+        crossings[3] = my - h * dx / d;
+        return 4;
+    }
+
+    /**
+     * Checks whether a point lies strictly inside a fetched area other than the two given circles
+     *
+     * @param x  x of the centers
+     * @param y  y of the centers
+     * @param r  radii
+     * @param px x of the point
+     * @param py y of the point
+     * @param i  circle to skip
+     * @param j  other circle to skip
+     * @return true if the point is inside one of the other fetched areas
+     */
+    private static boolean isInsideOther(double[] x, double[] y, double[] r, double px, double py, int i, int j) {
+        for (int k = 1; k < x.length; k++) {
+            double dx = px - x[k];
+            double dy = py - y[k];
+            if (k != i && k != j && dx * dx + dy * dy < r[k] * r[k]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a point lies in one of the fetched areas
+     *
+     * @param lat   latitude of the point
+     * @param lng   longitude of the point
+     * @param areas fetched areas as {lat, lng, radiusInMiles}
+     * @return true if the point is in an area
+     */
+    private boolean isInAnyArea(double lat, double lng, List<double[]> areas) {
+        for (double[] area : areas) {
+            if (GeoIndex.distanceInMiles(lat, lng, area[0], area[1]) <= area[2]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the stored attractions within the radius of the hotel to the attractions of the hotel
+     *
+     * @param hotel         hotel
+     * @param radiusInMiles radius in miles
+     */
+    private void addAttractionsNear(Hotel hotel, double radiusInMiles) {
+        for (TouristAttraction a : hotelData.getAttractionsNear(hotel.getLat(), hotel.getLng(), radiusInMiles)) {
+            hotelData.addTouristAttraction(hotel.getId(), a.getId(), a.getName(), a.getRating(), a.getAddress(),
+                    a.getLat(), a.getLng());
+        }
+    }
+
     /**
      * Print attractions near the hotels to a file.
      * The format is described in the project description.
@@ -78,21 +428,13 @@ public class TouristAttractionFinder {
             if (filename == null) {
                 return;
             }
-            Files.deleteIfExists(filename);
-            PrintWriter print = new PrintWriter(filename.toFile());
-            List<String> lisOfHotelIds = hotelData.getHotels();
-            Collections.sort(lisOfHotelIds);
-            for (String hotelId : lisOfHotelIds) {
-                print.write(hotelData.toStringAttraction(hotelId));
-                print.write(System.lineSeparator());
-                print.write(System.lineSeparator());
-                print.write(ASTERISKS);
-                print.write(System.lineSeparator());
-            }
-            print.flush();
-            print.close();
-        } catch (FileNotFoundException e) {
-            System.out.println("File not found" + filename);
+            ReportWriter.write(filename, hotelData::getHotelPage, (hotelId, out) -> {
+                out.append(hotelData.toStringAttraction(hotelId));
+                out.append(System.lineSeparator());
+                out.append(System.lineSeparator());
+                out.append(ASTERISKS);
+                out.append(System.lineSeparator());
+            });
         } catch (IOException e) {
             System.out.println("IO Exception occurred while printing attraction to file :" + filename);
         }
@@ -106,9 +448,12 @@ public class TouristAttractionFinder {
      * @param filename File Name
      */
     public void parseHTML(String hotelId, Path filename) {
-        String fileData = readHTMLFile(filename);
-        Map<String, String> descMap = scrapeHTMLFile(fileData);
-        hotelData.addDescriptions(hotelId, descMap);
+        try {
+            Map<String, String> descMap = HtmlDescriptionScraper.scrape(filename);
+            hotelData.addDescriptions(hotelId, descMap);
+        } catch (IOException e) {
+            System.out.println("IO Exception occurred while reading HTML file" + filename);
+        }
     }
 
     /**
@@ -122,23 +467,15 @@ public class TouristAttractionFinder {
             if (filename == null) {
                 return;
             }
-            Files.deleteIfExists(filename);
-            PrintWriter print = new PrintWriter(filename.toFile());
-            List<String> lisOfHotelIds = hotelData.getHotels();
-            Collections.sort(lisOfHotelIds);
-            for (String hotelId : lisOfHotelIds) {
+            ReportWriter.write(filename, hotelData::getHotelPage, (hotelId, out) -> {
                 String text = hotelData.toStringDescription(hotelId);
                 if (text.length() > 0) {
-                    print.write(hotelData.toStringDescription(hotelId));
-                    print.write(System.lineSeparator());
-                    print.write(ASTERISKS);
-                    print.write(System.lineSeparator());
+                    out.append(text);
+                    out.append(System.lineSeparator());
+                    out.append(ASTERISKS);
+                    out.append(System.lineSeparator());
                 }
-            }
-            print.flush();
-            print.close();
-        } catch (FileNotFoundException e) {
-            System.out.println("File not found" + filename);
+            });
         } catch (IOException e) {
             System.out.println("IO Exception occurred while printing description" + filename);
         }
@@ -146,152 +483,258 @@ public class TouristAttractionFinder {
 
 
     /**
-     * This method will make get request call to the api with the radius value passed
+     * This method will build the path and query of the request to the api with the radius value passed
      *
      * @param radiusInMiles radius in miles
      * @param h             Hotel obj
      * @param apiKey        api key
-     * @return json String
+     * @return path and query of the request
      */
-    private String getJsonString(int radiusInMiles, Hotel h, String apiKey) {
+    private String getPathResourceQuery(int radiusInMiles, Hotel h, String apiKey) {
         double radiusInMetres = radiusInMiles * MILES_TO_METRES;
-        String s = "";
-        String urlString = query + URLEncoder.encode(h.getCi(), StandardCharsets.UTF_8) + "&location=" + h.getLat()+","+h.getLng()+"&radius="+radiusInMetres+"&key="+apiKey;
-        URL url;
-        PrintWriter out = null;
-        BufferedReader in = null;
-        SSLSocket socket = null;
-        try {
-            url = new URL(urlString);
-            SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
-            socket = (SSLSocket) factory.createSocket(url.getHost(), 443);
-            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-            String request = getRequest(url.getHost(), url.getPath() + "?" + url.getQuery());
-            out.println(request); // send a request to the server
-            out.flush();
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            // use input stream to read server's response
-            String line;
-            StringBuilder sb = new StringBuilder();
-            while ((line = in.readLine()) != null) {
-                sb.append(line);
-            }
-            s = sb.toString();
-        } catch (IOException e) {
-            System.out.println(
-                    "An IOException occured while writing to the socket stream or reading from the stream: " + e);
-        } finally {
-            try {
-                if (out != null && in != null) {
-                    out.close();
-                    in.close();
-                    socket.close();
-                }
-            } catch (IOException e) {
-                System.out.println("An exception occured while trying to close the streams or the socket: " + e);
+        return query + URLEncoder.encode(h.getCi(), StandardCharsets.UTF_8) + "&location=" + h.getLat() + ","
+                + h.getLng() + "&radius=" + radiusInMetres + "&key=" + apiKey;
+    }
+
+
+    /** This method will parse user command input provided by the user
+     * @param input  String input
+     */
+    void parseUserInput(String input) {
+        String[] args = input.trim().split("\\s+");
+        if (args.length > 1) {
+            String strId = args[1];
+            switch (args[0]) {
+                case FIND_HOTEL_BY_ID_CMD:
+                    hotelData.findHotelById(strId);
+                    break;
+                case FIND_ATTRACTIONS:
+                    if (args.length > 2 && args[2].equals(TOP_OPTION)) {
+                        findTopAttractions(args);
+                    } else {
+                        hotelData.findAttractionById(strId);
+                    }
+                    break;
+                case FIND_CITY_ATTRACTIONS:
+                    findCityAttractions(input.trim().substring(FIND_CITY_ATTRACTIONS.length()).trim());
+                    break;
+                case FIND_DESCRIPTIONS:
+                    hotelData.findDescriptionById(strId);
+                    break;
+                case HOTELS_CMD:
+                    findHotelsByLocation(args);
+                    break;
+                case NEARBY_CMD:
+                    findNearbyHotels(args);
+                    break;
+                case NEAREST_CMD:
+                    findNearestHotels(args);
+                    break;
+                case SEARCH_CMD:
+                    searchDescriptions(input.trim().substring(SEARCH_CMD.length()).trim());
+                    break;
+                case SUGGEST_CMD:
+                    suggestHotels(input.trim().substring(SUGGEST_CMD.length()).trim());
+                    break;
+                case BATCH_CMD:
+                    lookupBatch(args);
+                    break;
             }
+        } else {
+            System.out.println("Please provide correct command !!!!!!!!!!");
         }
-        return s;
     }
 
+    /** Prints the best rated attractions of a hotel, for the command findAttraction <hotelId> top <k>
+     * @param args command split into words
+     */
+    private void findTopAttractions(String[] args) {
+        try {
+            hotelData.findAttractionById(args[1], Integer.parseInt(args[3]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Please provide command as findAttraction <hotelId> top <k>");
+        }
+    }
 
-    /** Will create getRequest for the url and host provided
-     * @param host  host name
-     * @param pathResourceQuery query passed
-     * @return string
+    /** Prints the best rated attractions near the hotels of a city, for the command findCityAttractions <city>
+     * @param city city
      */
-    private String getRequest(String host, String pathResourceQuery) {
-        return "GET " + pathResourceQuery + " HTTP/1.1" + System.lineSeparator()
-                + "Host: " + host + System.lineSeparator()
-                + "Connection: close" + System.lineSeparator()
-                + System.lineSeparator();
+    private void findCityAttractions(String city) {
+        List<TouristAttraction> attractions = hotelData.getTopAttractionsInCity(city, CITY_ATTRACTION_RESULTS);
+        if (attractions.isEmpty()) {
+            System.out.println("No Tourist Attraction found for city :" + city);
+            return;
+        }
+        System.out.println("Best rated attractions in " + city);
+        for (TouristAttraction attraction : attractions) {
+            System.out.println(attraction.getName() + " (" + attraction.getRating() + ")");
+        }
     }
 
+    /** Prints the hotels whose descriptions match the query best, for the command search <terms>
+     * @param query query terms
+     */
+    private void searchDescriptions(String query) {
+        List<String> hotelIds = hotelData.searchDescriptions(query, SEARCH_RESULTS);
+        if (hotelIds.isEmpty()) {
+            System.out.println("No hotels found for " + query);
+            return;
+        }
+        System.out.println("Hotels matching " + query);
+        for (String hotelId : hotelIds) {
+            Hotel hotel = hotelData.getHotel(Integer.parseInt(hotelId));
+            System.out.println((hotel != null ? hotel.getF() : "") + ": " + hotelId);
+        }
+    }
 
-    /** This method will read HTML file provided and append it to fileData
-     * @param filename fileName
-     * @return string
+    /** Prints the hotels whose names start with the prefix, for the command suggest <prefix>
+     * @param prefix prefix of the hotel name
      */
-    private String readHTMLFile(Path filename) {
-        StringBuilder fileData = new StringBuilder();
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(filename.toFile()))) {
-            while ((line = br.readLine()) != null) {
-                fileData.append(line);
+    private void suggestHotels(String prefix) {
+        List<String> hotelIds = hotelData.suggestHotels(prefix, SUGGEST_RESULTS);
+        if (hotelIds.isEmpty()) {
+            System.out.println("No hotels found starting with " + prefix);
+            return;
+        }
+        for (String hotelId : hotelIds) {
+            Hotel hotel = hotelData.getHotel(Integer.parseInt(hotelId));
+            System.out.println((hotel != null ? hotel.getF() : "") + ": " + hotelId);
+        }
+    }
+
+    /** Prints the details, attractions and descriptions of many hotels, for the command
+     * batch find <hotelId>... findAttraction <hotelId>... findDescriptions <hotelId>...
+     * Each of find, findAttraction and findDescriptions applies to the ids after it, and all lookups are
+     * resolved together against one consistent view of the hotel data.
+     * @param args command split into words
+     */
+    private void lookupBatch(String[] args) {
+        BatchLookup batch = new BatchLookup();
+        BatchLookup.Kind kind = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals(FIND_HOTEL_BY_ID_CMD)) {
+                kind = BatchLookup.Kind.HOTEL;
+            } else if (args[i].equals(FIND_ATTRACTIONS)) {
+                kind = BatchLookup.Kind.ATTRACTIONS;
+            } else if (args[i].equals(FIND_DESCRIPTIONS)) {
+                kind = BatchLookup.Kind.DESCRIPTIONS;
+            } else {
+                int hotelId;
+                try {
+                    hotelId = Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    hotelId = 0;
+                }
+                if (kind == null || hotelId <= 0) {
+                    System.out.println("Please provide command as batch find <hotelId>... "
+                            + "findAttraction <hotelId>... findDescriptions <hotelId>...");
+                    return;
+                }
+                batch.add(kind, hotelId);
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("File not found" + filename);
+        }
+        try {
+            hotelData.lookup(batch, new BatchPrinter(System.out));
         } catch (IOException e) {
-            System.out.println("IO Exception occurred while reading HTML file" + filename);
+            System.out.println("IO Exception occurred while printing the batch: " + e);
         }
-        return fileData.toString();
     }
 
-    /**
-     * This method will extract Area desc and Property desc and stored it into map using regex pattern
-     *
-     * @param fileData html file
-     * @return map with description details
+    /** Prints the hotels in a city and/or state, for the commands hotels city <name> [state <code>] and
+     * hotels state <code> [city <name>]. The hotels are fetched and printed one page at a time.
+     * @param args command split into words
      */
-    private Map<String, String> scrapeHTMLFile(String fileData) {
-        Map<String, String> descMap = new HashMap<>();
-        StringBuilder areaDesc = new StringBuilder();
-        Pattern pattern = Pattern.compile(REGEX_PATTERN_STRING_AREA);
-        Matcher matcher = pattern.matcher(fileData);
-        while (matcher.find()) {
-            areaDesc.append(matcher.group(2));
-            areaDesc.append(System.lineSeparator());
-            areaDesc.append(matcher.group(4));
+    private void findHotelsByLocation(String[] args) {
+        StringBuilder city = null;
+        StringBuilder state = null;
+        StringBuilder value = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals(CITY_OPTION)) {
+                city = new StringBuilder();
+                value = city;
+            } else if (args[i].equals(STATE_OPTION)) {
+                state = new StringBuilder();
+                value = state;
+            } else if (value != null) {
+                value.append(value.length() > 0 ? " " : "").append(args[i]);
+            }
         }
-        descMap.put("AreaDesc", areaDesc.toString());
-        StringBuilder propDesc = new StringBuilder();
-        Pattern pattern1 = Pattern.compile(REGEX_PATTERN_STRING_PROPERTY);
-        Matcher matcher1 = pattern1.matcher(fileData);
-        while (matcher1.find()) {
-            propDesc.append(matcher1.group(2));
-            propDesc.append(System.lineSeparator());
-            propDesc.append(matcher1.group(4));
+        if (value == null || (city != null && city.length() == 0) || (state != null && state.length() == 0)) {
+            System.out.println("Please provide command as hotels city <name> [state <code>] or hotels state <code>");
+            return;
         }
-        descMap.put("PropDesc", propDesc.toString());
-        return descMap;
+        findHotelsByLocation(city != null ? city.toString() : null, state != null ? state.toString() : null);
     }
 
+    /** Prints the hotels in a city and/or state, fetching one page at a time
+     * @param city city, or null for any city
+     * @param state state, or null for any state
+     */
+    private void findHotelsByLocation(String city, String state) {
+        int count = 0;
+        int afterId = Integer.MIN_VALUE;
+        List<String> page = hotelData.getHotelPageByLocation(city, state, afterId, HOTELS_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (String hotelId : page) {
+                Hotel hotel = hotelData.getHotel(Integer.parseInt(hotelId));
+                System.out.println((hotel != null ? hotel.getF() : "") + ": " + hotelId);
+            }
+            count += page.size();
+            afterId = Integer.parseInt(page.get(page.size() - 1));
+            page = hotelData.getHotelPageByLocation(city, state, afterId, HOTELS_PAGE_SIZE);
+        }
+        System.out.println(count == 0 ? "No hotels found" : count + " hotels found");
+    }
 
-    /** This method will remove headers from the  response using regex
-     * @param s String response with headers
-     * @return string after removing headers from response
+    /** Prints the hotels within a radius of a location, for the command nearby <lat> <lng> <miles>
+     * @param args command split into words
      */
-    private String removeHeaders(String s) {
-        String patternString1 = "(.*?)\\{(.*)";
-        String json = "";
-        Pattern pattern = Pattern.compile(patternString1);
-        Matcher matcher = pattern.matcher(s);
-        while (matcher.find()) {
-            json = "{" + matcher.group(2);
+    private void findNearbyHotels(String[] args) {
+        try {
+            double lat = Double.parseDouble(args[1]);
+            double lng = Double.parseDouble(args[2]);
+            double radiusInMiles = Double.parseDouble(args[3]);
+            List<Hotel> hotels = hotelData.getHotelsNear(lat, lng, radiusInMiles);
+            if (hotels.isEmpty()) {
+                System.out.println("No hotels found within " + radiusInMiles + " miles of " + lat + "," + lng);
+            } else {
+                System.out.println("Hotels within " + radiusInMiles + " miles of " + lat + "," + lng);
+                printHotelsWithDistance(hotels, lat, lng);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Please provide command as nearby <lat> <lng> <miles>");
         }
-        return json;
     }
 
-    /** This method will parse user command input provided by the user
-     * @param input  String input
+    /** Prints the k hotels nearest to a location, for the command nearest <lat> <lng> <k>
+     * @param args command split into words
      */
-    void parseUserInput(String input) {
-        String cmdKey = input.contains(" ") ? input.split(" ")[0] : null;
-        if (cmdKey != null && input.split(" ").length > 1) {
-            String strId = input.split(" ")[1];
-            switch (cmdKey) {
-                case FIND_HOTEL_BY_ID_CMD:
-                    hotelData.findHotelById(strId);
-                    break;
-                case FIND_ATTRACTIONS:
-                    hotelData.findAttractionById(strId);
-                    break;
-                case FIND_DESCRIPTIONS:
-                    hotelData.findDescriptionById(strId);
-                    break;
+    private void findNearestHotels(String[] args) {
+        try {
+            double lat = Double.parseDouble(args[1]);
+            double lng = Double.parseDouble(args[2]);
+            int k = Integer.parseInt(args[3]);
+            List<Hotel> hotels = hotelData.getNearestHotels(lat, lng, k);
+            if (hotels.isEmpty()) {
+                System.out.println("No hotels found near " + lat + "," + lng);
+            } else {
+                System.out.println("Hotels nearest to " + lat + "," + lng);
+                printHotelsWithDistance(hotels, lat, lng);
             }
-        } else {
-            System.out.println("Please provide correct command !!!!!!!!!!");
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Please provide command as nearest <lat> <lng> <k>");
+        }
+    }
+
+    /** Prints one line per hotel with its name, id and distance from a location
+     * @param hotels hotels to print
+     * @param lat latitude of the location
+     * @param lng longitude of the location
+     */
+    private void printHotelsWithDistance(List<Hotel> hotels, double lat, double lng) {
+        for (Hotel hotel : hotels) {
+            double distance = GeoIndex.distanceInMiles(lat, lng, hotel.getLat(), hotel.getLng());
+            System.out.println(hotel.getF() + ": " + hotel.getId() + " (" + String.format("%.2f", distance) + " miles)");
         }
     }
 
@@ -314,13 +757,67 @@ public class TouristAttractionFinder {
      * This method will process html files from the map and call parse html on each of the file path
      */
     public void processHTMLFiles() {
-        for (String hotelId : hotelData.getHotels()) {
-            String fileName = "h" + hotelId + ".html";
-            if (getHTMLFilePaths().size() > 0) {
-                Path p = getHTMLFilePaths().get(fileName);
-                parseHTML(hotelId, p);
+        processHTMLFiles(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * This method will list the html folder once and parse the page of every known hotel on a pool of
+     * numThreads threads, so reading some pages overlaps with scraping others. Pages of unknown hotels
+     * are skipped, and hotels without a page are never looked up.
+     *
+     * @param numThreads number of threads parsing pages
+     */
+    public void processHTMLFiles(int numThreads) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, Path> entry : getHTMLFilePaths().entrySet()) {
+                String hotelId = getHotelId(entry.getKey());
+                if (hotelId != null && hotelData.getHotel(Integer.parseInt(hotelId)) != null) {
+                    futures.add(pool.submit(() -> parseHTML(hotelId, entry.getValue())));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.out.println("Exception occurred while processing HTML files: " + e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        hotelData.publishSnapshot();
+    }
+
+    /**
+     * Starts watching the html folder, so pages that are created or modified from now on are scraped again
+     * and their descriptions replace the old ones. Start it before processHTMLFiles() so no change is missed.
+     *
+     * @return watcher; close it to stop watching
+     * @throws IOException if the html folder can not be watched
+     */
+    public DescriptionWatcher watchHTMLFiles() throws IOException {
+        return new DescriptionWatcher(hotelData, Paths.get(HTML_DIRECTORY));
+    }
+
+    /**
+     * Returns the hotel id of an html file name of the form h&lt;hotelId&gt;.html
+     *
+     * @param fileName file name
+     * @return hotel id, or null if the name is not of that form
+     */
+    static String getHotelId(String fileName) {
+        if (!fileName.startsWith("h") || !fileName.endsWith(HTML_SUFFIX) || fileName.length() <= HTML_SUFFIX.length() + 1) {
+            return null;
+        }
+        String hotelId = fileName.substring(1, fileName.length() - HTML_SUFFIX.length());
+        for (int i = 0; i < hotelId.length(); i++) {
+            if (!Character.isDigit(hotelId.charAt(i))) {
+                return null;
             }
         }
+        return hotelId.length() < 10 ? hotelId : null;
     }
 
     /**
@@ -330,7 +827,7 @@ public class TouristAttractionFinder {
      */
     private Map<String, Path> getHTMLFilePaths() {
         Map<String, Path> mapOfHTMLPaths = new HashMap<>();
-        Path actual = Paths.get("input" + File.separator + "html");
+        Path actual = Paths.get(HTML_DIRECTORY);
         try (DirectoryStream<Path> filesList = Files.newDirectoryStream(actual)) {
             for (Path file : filesList) {
                 if (!Files.isDirectory(file)) {
@@ -342,4 +839,52 @@ public class TouristAttractionFinder {
         }
         return mapOfHTMLPaths;
     }
-}
\ No newline at end of file
+
+    /**
+     * Prints the results of a batch in the format of the find, findAttraction and findDescriptions commands
+     */
+    private static class BatchPrinter implements BatchLookup.Sink {
+        private final PrintStream out;
+
+        BatchPrinter(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void hotel(int hotelId, Hotel hotel) {
+            if (hotel != null) {
+                out.println("Hotel details of hotelId -- " + hotelId + hotel);
+            } else {
+                out.println("No hotel details available for this hotelId - " + hotelId);
+            }
+        }
+
+        @Override
+        public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions) {
+            if (hotel == null || attractions.isEmpty()) {
+                out.println("No Tourist Attraction found for Hotel :" + hotelId);
+                return;
+            }
+            out.println("Attractions near " + hotelId + ", " + hotel.getF());
+            for (TouristAttraction attraction : attractions) {
+                out.println(attraction.getName());
+            }
+        }
+
+        @Override
+        public void descriptions(int hotelId, Hotel hotel, String property, String area) {
+            if (hotel == null || (property == null && area == null)) {
+                out.println("No Description  found for Hotel :" + hotelId);
+                return;
+            }
+            out.println(hotelId);
+            if (property != null && property.length() > 0) {
+                out.println(property);
+            }
+            out.println();
+            if (area != null && area.length() > 0) {
+                out.println(area);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package hotelapp;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of PlacesHttpClient against a stub server on a local plain socket, which answers each request with
+ * the next scripted response. The stub counts the connections it accepts, so a test can tell whether the
+ * client reused a connection or opened a new one.
+ */
+class PlacesHttpClientTest {
+
+    @Test
+    void readsContentLengthBodiesOverOneConnection() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nfirst", false);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\nsecond", false);
+            assertEquals("first", get(client));
+            assertEquals("second", get(client));
+            assertEquals(1, server.connections.get());
+        }
+    }
+
+    @Test
+    void readsChunkedBodiesOverOneConnection() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "4;name=value\r\n{\"a\"\r\n" + "3\r\n:1}\r\n" + "0\r\nTrailer: x\r\n\r\n", false);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n{}", false);
+            assertEquals("{\"a\":1}", get(client));
+            assertEquals("{}", get(client));
+            assertEquals(1, server.connections.get());
+        }
+    }
+
+    @Test
+    void opensNewConnectionAfterConnectionClose() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 5\r\n\r\nfirst", true);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\nsecond", false);
+            assertEquals("first", get(client));
+            assertEquals("second", get(client));
+            assertEquals(2, server.connections.get());
+        }
+    }
+
+    @Test
+    void readsUnframedBodyUntilTheServerCloses() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.1 200 OK\r\n\r\nto the end", true);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\nsecond", false);
+            assertEquals("to the end", get(client));
+            assertEquals("second", get(client));
+            assertEquals(2, server.connections.get());
+        }
+    }
+
+    @Test
+    void retriesOnNewConnectionWhenReusedSocketIsStale() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            // the server closes the connection after the response without saying so, like an idle timeout
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nfirst", true);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\nsecond", false);
+            assertEquals("first", get(client));
+            assertEquals("second", get(client));
+            assertEquals(2, server.connections.get());
+        }
+    }
+
+    @Test
+    void closesHttp10ConnectionsUnlessKeptAlive() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.0 200 OK\r\nContent-Length: 5\r\n\r\nfirst", false);
+            server.respond("HTTP/1.0 200 OK\r\nConnection: keep-alive\r\nContent-Length: 6\r\n\r\nsecond", false);
+            server.respond("HTTP/1.0 200 OK\r\nContent-Length: 5\r\n\r\nthird", false);
+            assertEquals("first", get(client));
+            assertEquals("second", get(client));
+            assertEquals("third", get(client));
+            assertEquals(2, server.connections.get());
+        }
+    }
+
+    @Test
+    void failsOnErrorStatusAndKeepsWorking() throws Exception {
+        try (StubServer server = new StubServer(); PlacesHttpClient client = server.client()) {
+            server.respond("HTTP/1.1 403 Forbidden\r\nContent-Length: 6\r\n\r\ndenied", false);
+            server.respond("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok", false);
+            assertThrows(IOException.class, () -> get(client));
+            assertEquals("ok", get(client));
+        }
+    }
+
+    private static String get(PlacesHttpClient client) throws IOException {
+        String[] body = new String[1];
+        client.get("/", in -> body[0] = new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        return body[0];
+    }
+
+    /**
+     * Server on a local plain socket that answers every request with the next scripted response
+     */
+    private static class StubServer implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final BlockingQueue<String[]> responses = new LinkedBlockingQueue<>();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        StubServer() throws IOException {
+            startDaemon(this::accept);
+        }
+
+        /**
+         * Scripts the response to the next request
+         *
+         * @param response raw response, status line to body
+         * @param close    true to close the connection after the response
+         */
+        void respond(String response, boolean close) {
+            responses.add(new String[]{response, String.valueOf(close)});
+        }
+
+        /**
+         * @return client of the server that connects with plain sockets instead of TLS
+         */
+        PlacesHttpClient client() {
+            return new PlacesHttpClient("localhost", serverSocket.getLocalPort(), new SSLSocketFactory() {
+                @Override
+                public Socket createSocket(String host, int port) throws IOException {
+                    return new Socket(InetAddress.getLoopbackAddress(), port);
+                }
+
+                @Override
+                public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Socket createSocket(InetAddress host, int port) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Socket createSocket(InetAddress host, int port, InetAddress localHost, int localPort) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Socket createSocket(Socket socket, String host, int port, boolean autoClose) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public String[] getDefaultCipherSuites() {
+                    return new String[0];
+                }
+
+                @Override
+                public String[] getSupportedCipherSuites() {
+                    return new String[0];
+                }
+            }, 4);
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    startDaemon(() -> serve(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                OutputStream out = socket.getOutputStream();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        // request line or header; the blank line ends the request
+                        continue;
+                    }
+                    String[] response = responses.take();
+                    out.write(response[0].getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                    if (Boolean.parseBoolean(response[1])) {
+                        return;
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // the client went away or the test is over
+            }
+        }
+
+        private static void startDaemon(Runnable task) {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package hotelapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Stress tests of ThreadSafeHotelData with one writer and several readers running at once. The writer
+ * rewrites a fixed set of hotels generation after generation, always the descriptions of a hotel before
+ * the hotel itself, adds a new hotel with the next id every generation, and publishes a snapshot after
+ * every generation. Every field it writes carries the generation, so a reader can tell a consistent view
+ * from a torn one:
+ * <ul>
+ * <li>a rendered hotel names one generation in all its fields, and never goes back to an older one</li>
+ * <li>a batch sees the descriptions of a hotel at most one generation ahead of the hotel</li>
+ * <li>the hotel ids form the gapless range 0..n-1, and n never shrinks</li>
+ * </ul>
+ */
+class ThreadSafeHotelDataTest {
+    private static final int HOTELS = 64;
+    private static final int GENERATIONS = 300;
+    private static final int READERS = 4;
+
+    @Test
+    void snapshotModeReadsAreConsistent() throws Exception {
+        stress(new ThreadSafeHotelData(true));
+    }
+
+    @Test
+    void snapshotModeReadsAreConsistentWithColumnarHotelsAndCompressedDescriptions() throws Exception {
+        stress(new ThreadSafeHotelData(true, true, true));
+    }
+
+    @Test
+    void lockModeReadsAreConsistent() throws Exception {
+        stress(new ThreadSafeHotelData(false));
+    }
+
+    private static void stress(ThreadSafeHotelData data) throws Exception {
+        for (int hotelId = 0; hotelId < HOTELS; hotelId++) {
+            write(data, hotelId, 0);
+        }
+        data.publishSnapshot();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> {
+                try {
+                    for (int generation = 1; generation <= GENERATIONS; generation++) {
+                        for (int hotelId = 0; hotelId < HOTELS; hotelId++) {
+                            write(data, hotelId, generation);
+                        }
+                        write(data, HOTELS + generation - 1, 0);
+                        data.publishSnapshot();
+                    }
+                } finally {
+                    done.set(true);
+                }
+                return null;
+            }));
+            for (int reader = 0; reader < READERS; reader++) {
+                futures.add(pool.submit(() -> {
+                    read(data, done);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(2, TimeUnit.MINUTES);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof AssertionError) {
+                        throw (AssertionError) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(HOTELS + GENERATIONS, data.getHotels().size());
+        assertEquals(GENERATIONS, generationOf(data.toString("0")));
+    }
+
+    /**
+     * Writes generation g of a hotel: first its descriptions, then the hotel
+     */
+    private static void write(ThreadSafeHotelData data, int hotelId, int generation) {
+        String id = String.valueOf(hotelId);
+        Map<String, String> descriptions = new HashMap<>();
+        descriptions.put(HtmlDescriptionScraper.PROPERTY_DESC, "property " + generation);
+        descriptions.put(HtmlDescriptionScraper.AREA_DESC, "area " + generation);
+        data.addDescriptions(id, descriptions);
+        data.addHotel(id, "G" + generation, "City" + generation, "CA", generation + " Main St", 37.7, -122.4);
+    }
+
+    private static void read(ThreadSafeHotelData data, AtomicBoolean done) throws Exception {
+        int[] lastGeneration = new int[HOTELS];
+        int lastCount = 0;
+        // keeps reading until the writer is done, and once more after that
+        for (boolean last = false; !last; ) {
+            last = done.get();
+            for (int hotelId = 0; hotelId < HOTELS; hotelId++) {
+                int generation = generationOf(data.toString(String.valueOf(hotelId)));
+                assertTrue(generation >= lastGeneration[hotelId],
+                        "hotel " + hotelId + " went back from generation " + lastGeneration[hotelId] + " to " + generation);
+                lastGeneration[hotelId] = generation;
+            }
+            checkBatch(data);
+            List<String> hotelIds = data.getHotelPage(Integer.MIN_VALUE, Integer.MAX_VALUE);
+            for (int i = 0; i < hotelIds.size(); i++) {
+                assertEquals(String.valueOf(i), hotelIds.get(i), "hotel ids are not a gapless range");
+            }
+            assertTrue(hotelIds.size() >= lastCount, "hotels disappeared");
+            lastCount = hotelIds.size();
+        }
+    }
+
+    private static void checkBatch(ThreadSafeHotelData data) throws Exception {
+        BatchLookup batch = new BatchLookup();
+        for (int hotelId = 0; hotelId < HOTELS; hotelId++) {
+            batch.add(BatchLookup.Kind.HOTEL, hotelId);
+            batch.add(BatchLookup.Kind.DESCRIPTIONS, hotelId);
+        }
+        int[] hotelGenerations = new int[HOTELS];
+        data.lookup(batch, new BatchLookup.Sink() {
+            @Override
+            public void hotel(int hotelId, Hotel hotel) {
+                hotelGenerations[hotelId] = Integer.parseInt(hotel.getF().substring(1));
+            }
+
+            @Override
+            public void attractions(int hotelId, Hotel hotel, List<TouristAttraction> attractions) {
+                fail("no attractions were asked for");
+            }
+
+            @Override
+            public void descriptions(int hotelId, Hotel hotel, String property, String area) {
+                int generation = Integer.parseInt(property.substring("property ".length()));
+                assertEquals("area " + generation, area, "torn descriptions of hotel " + hotelId);
+                int ahead = generation - hotelGenerations[hotelId];
+                assertTrue(ahead == 0 || ahead == 1, "batch saw descriptions of hotel " + hotelId + " at generation "
+                        + generation + " but the hotel at generation " + hotelGenerations[hotelId]);
+            }
+        });
+    }
+
+    /**
+     * Reads the generation of a rendered hotel, checking that all its fields name the same one
+     *
+     * @param view output of toString(hotelId)
+     * @return generation of the hotel
+     */
+    private static int generationOf(String view) {
+        String[] lines = view.split(System.lineSeparator());
+        assertEquals(3, lines.length, "not a rendered hotel: " + view);
+        int generation = Integer.parseInt(lines[0].substring(1, lines[0].indexOf(':')));
+        assertEquals(generation + " Main St", lines[1], "torn view: " + view);
+        assertEquals("City" + generation + ", CA", lines[2], "torn view: " + view);
+        return generation;
+    }
+}